@@ -0,0 +1,53 @@
+package benchmark;
+
+import tasklist.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This BenchmarkTasks.java generates the task lists the benchmarks run on: the same mix of todos, deadlines
+ * and events for a given count every time, with ids 1..count as if they had been loaded from a task file.
+ * Most descriptions repeat the way real lists do ("buy groceries", "review report"), one in four ends with
+ * the task's number and is unique.
+ */
+
+public class BenchmarkTasks {
+    private static final String[] VERBS = { "buy", "read", "call", "write", "fix", "review", "plan", "clean" };
+    private static final String[] THINGS = { "groceries", "chapter", "mum", "report", "bike", "pull request",
+            "trip", "kitchen", "slides", "budget" };
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 9, 0);
+
+    public static List<Task> generate(int count) {
+        Random random = new Random(42);
+        List<Task> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String description = VERBS[random.nextInt(VERBS.length)] + " " + THINGS[random.nextInt(THINGS.length)]
+                    + (random.nextInt(4) == 0 ? " " + i : "");
+            Task task = create(description, random.nextInt(10), random);
+            tasks.add(task.withId(i + 1).withDone(random.nextInt(3) == 0));
+        }
+        return tasks;
+    }
+
+    // 6 in 10 tasks are todos, 3 deadlines and 1 an event
+    private static Task create(String description, int kind, Random random) {
+        if (kind < 6) {
+            return new Todo(description);
+        }
+        if (kind < 9) {
+            return new Deadline(description, START.plusMinutes(random.nextInt(500_000)));
+        }
+        LocalDateTime from = START.plusHours(random.nextInt(8_000));
+        return new Event(description, from.toString().replace('T', ' '), from.plusHours(1).toString().replace('T', ' '));
+    }
+
+    // a TaskList holding the generated tasks, added the way Sunny adds the tasks it loads from the file
+    public static TaskList taskList(int count) {
+        TaskList taskList = new TaskList();
+        taskList.addLoadedTasks(generate(count));
+        return taskList;
+    }
+}
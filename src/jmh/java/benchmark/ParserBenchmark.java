@@ -0,0 +1,48 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import parser.Parser;
+import tasklist.TaskList;
+import ui.Ui;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This ParserBenchmark.java measures Parser.parseCommand from the input line to the finished output,
+ * for a few commands on generated lists of 10^3 to 10^6 tasks. The output goes to a sink that only
+ * counts characters, so printing to a console is not part of the numbers.
+ * Marking the same task twice in a row is fine here: the second time is the "already marked" path,
+ * which is the same lookup and dispatch.
+ * "todo buy groceries" is in every generated list, so it measures parsing the line and rejecting the duplicate,
+ * with the error message; adding a new task is measured by TaskListBenchmark.addAndRemove.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ParserBenchmark {
+    @Param({ "1000", "10000", "100000", "1000000" })
+    public int size;
+
+    @Param({ "list --page 3", "find budget", "mark 500", "todo buy groceries", "due before 2025-03-01" })
+    public String command;
+
+    private Parser parser;
+    private Ui ui;
+    private long printedChars;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        TaskList taskList = BenchmarkTasks.taskList(size);
+        ui = new Ui(text -> printedChars += text.length());
+        ui.setDeferredFlush(true);
+        parser = new Parser(taskList, ui);
+    }
+
+    @Benchmark
+    public long parseCommand() {
+        parser.parseCommand(command);
+        ui.flush();
+        return printedChars;
+    }
+}
@@ -0,0 +1,67 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import storage.DurabilityMode;
+import storage.Storage;
+import storage.WriteMode;
+import tasklist.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This StorageBenchmark.java measures loading a whole task file with Storage.loadTasks and saving one with
+ * Storage.save, for generated lists of 10^3 to 10^6 tasks. Files from 1 MB up are loaded by the parallel
+ * memory-mapped loader, smaller ones line by line, the same as when Sunny starts.
+ * Saves are not fsynced (os-flush), so the numbers are about Sunny rather than the disk.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class StorageBenchmark {
+    @Param({ "1000", "10000", "100000", "1000000" })
+    public int size;
+
+    private File directory;
+    private Storage loadStorage;
+    private Storage saveStorage;
+    private String savePath;
+    private List<Task> tasks;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("sunny-benchmark").toFile();
+        tasks = BenchmarkTasks.generate(size);
+        String loadPath = new File(directory, "load.txt").getPath();
+        savePath = new File(directory, "save.txt").getPath();
+        loadStorage = new Storage(loadPath, DurabilityMode.OS_FLUSH, WriteMode.JOURNAL);
+        loadStorage.save(loadPath, tasks);
+        saveStorage = new Storage(savePath, DurabilityMode.OS_FLUSH, WriteMode.JOURNAL);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        loadStorage.close();
+        saveStorage.close();
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public List<Task> loadTasks() throws IOException {
+        return loadStorage.loadTasks();
+    }
+
+    @Benchmark
+    public void save() {
+        saveStorage.save(savePath, tasks);
+    }
+}
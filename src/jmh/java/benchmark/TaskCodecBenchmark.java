@@ -0,0 +1,55 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import tasklist.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This TaskCodecBenchmark.java measures turning one task file line into a Task (Task.parse) and back
+ * (getTaskStorageString), for each kind of task. Every call goes to the next of 1024 generated lines,
+ * so the numbers are not those of one line that happens to be cheap.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TaskCodecBenchmark {
+    private static final int LINE_COUNT = 1024;
+
+    @Param({ "T", "D", "E" })
+    public String type;
+
+    private Task[] tasks;
+    private String[] lines;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        tasks = new Task[LINE_COUNT];
+        lines = new String[LINE_COUNT];
+        int count = 0;
+        for (Task task : BenchmarkTasks.generate(LINE_COUNT * 20)) {
+            if (count < LINE_COUNT && task.getType().equals(type)) {
+                tasks[count] = task;
+                lines[count] = task.getTaskStorageString();
+                count++;
+            }
+        }
+        if (count < LINE_COUNT) {
+            throw new IllegalStateException("Not enough generated tasks of type " + type);
+        }
+    }
+
+    @Benchmark
+    public Task parse() {
+        next = (next + 1) & (LINE_COUNT - 1);
+        return Task.parse(lines[next]);
+    }
+
+    @Benchmark
+    public String storageString() {
+        next = (next + 1) & (LINE_COUNT - 1);
+        return tasks[next].getTaskStorageString();
+    }
+}
@@ -0,0 +1,66 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import tasklist.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This TaskListBenchmark.java measures TaskList.addTask and the search behind the find command
+ * on generated lists of 10^3 to 10^6 tasks:
+ *   addDuplicate   adding a task equal to one in the list, which is only the duplicate check
+ *   addAndRemove   adding a new task and deleting it again, so the list keeps its size
+ *   findWord       a word a tenth of the tasks contain ("budget")
+ *   findRare       the number of one task, which only that task contains
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TaskListBenchmark {
+    @Param({ "1000", "10000", "100000", "1000000" })
+    public int size;
+
+    private TaskList taskList;
+    private Task existingTask;
+    private String rareKeyword;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        taskList = BenchmarkTasks.taskList(size);
+        // an equal copy of a task in the middle, the way a user would type it again
+        existingTask = Task.parse(taskList.getTask(size / 2).getTaskStorageString());
+        // every fourth task ends with its own number, the first such task after the middle is the rare one
+        for (int i = size / 2; i < size; i++) {
+            String description = taskList.getTask(i).getDescription();
+            if (Character.isDigit(description.charAt(description.length() - 1))) {
+                rareKeyword = description.substring(description.lastIndexOf(' ') + 1);
+                break;
+            }
+        }
+    }
+
+    @Benchmark
+    public Task addDuplicate() {
+        return taskList.addTask(existingTask);
+    }
+
+    @Benchmark
+    public Task addAndRemove() {
+        next++;
+        taskList.addTask(new Todo("benchmark task " + next));
+        return taskList.removeTask(taskList.size() - 1);
+    }
+
+    @Benchmark
+    public List<Task> findWord() {
+        return taskList.searchTasks("budget");
+    }
+
+    @Benchmark
+    public List<Task> findRare() {
+        return taskList.searchTasks(rareKeyword);
+    }
+}
@@ -0,0 +1,14 @@
+/**
+ * This Percentiles.java reads percentiles off sorted latencies, for the reports of ScaleTest and SunnyLoadTest.
+ */
+
+public class Percentiles {
+    private Percentiles() {
+    }
+
+    // the latency below which the given fraction of the sorted latencies lie, nearest rank, in the latencies' unit
+    public static long of(long[] sortedLatencies, double fraction) {
+        int index = (int) Math.min(sortedLatencies.length - 1, Math.round(fraction * (sortedLatencies.length - 1)));
+        return sortedLatencies[index];
+    }
+}
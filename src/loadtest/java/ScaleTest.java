@@ -0,0 +1,170 @@
+import parser.Parser;
+import storage.Storage;
+import tasklist.TaskList;
+import ui.Ui;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This ScaleTest.java replays a command script from {@link WorkloadGenerator} against Sunny in the same process:
+ * the task file is loaded with Storage, every change is journaled the way Sunny does, and each command goes through
+ * Parser.parseCommand with its output rendered into a Ui whose sink only counts the characters.
+ * For every list size it prints the throughput and the p50/p99/p999 latency of each kind of command,
+ * and at the end one line per size, which together are the scaling curve.
+ * Every size is replayed once to warm up the JIT before the measured run, each run on a fresh copy of the files
+ * in a temporary folder, so the generated files and data/sunny.txt are never changed.
+ *
+ * Options: those of WorkloadGenerator (except the output folder), and
+ *   --sizes <n>,<n>,...   task counts to generate and replay, instead of the single --tasks count
+ *   --dir <folder>        replay the sunny.txt and commands.txt already in the folder instead of generating them
+ *
+ * Usage: ScaleTest [options]   e.g. ./gradlew scaleTest --args='--sizes 1000,10000,100000,1000000 --commands 20000'
+ */
+
+public class ScaleTest {
+    private static final double[] PERCENTILES = { 0.50, 0.99, 0.999 };
+
+    private static long printedChars;
+
+    public static void main(String[] args) throws Exception {
+        List<String> generatorArgs = new ArrayList<>();
+        String sizes = null;
+        File replayFolder = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--sizes") && i + 1 < args.length) {
+                sizes = args[++i];
+            } else if (args[i].equals("--dir") && i + 1 < args.length) {
+                replayFolder = new File(args[++i]);
+            } else {
+                generatorArgs.add(args[i]);
+            }
+        }
+
+        List<String> curve = new ArrayList<>();
+        if (replayFolder != null) {
+            curve.add(run(replayFolder));
+        } else {
+            WorkloadGenerator generator = WorkloadGenerator.fromArgs(generatorArgs.toArray(new String[0]));
+            String[] taskCounts = sizes == null ? new String[] { String.valueOf(generator.taskCount) } : sizes.split(",");
+            for (String taskCount : taskCounts) {
+                generator.taskCount = Integer.parseInt(taskCount.trim());
+                File folder = Files.createTempDirectory("sunny-workload").toFile();
+                generator.writeTaskFile(new File(folder, "sunny.txt"));
+                generator.writeScript(new File(folder, "commands.txt"));
+                curve.add(run(folder));
+                deleteFolder(folder);
+            }
+        }
+
+        System.out.println();
+        System.out.printf("%10s %10s %12s %10s %10s %10s%n", "tasks", "commands", "commands/s", "p50 us", "p99 us",
+                "p999 us");
+        for (String line : curve) {
+            System.out.println(line);
+        }
+    }
+
+    // warms up on one copy of the files, measures on another, and returns the line of the size for the curve
+    private static String run(File folder) throws IOException {
+        List<String> commands = Files.readAllLines(new File(folder, "commands.txt").toPath());
+        replay(folder, commands);
+        Replay replay = replay(folder, commands);
+
+        System.out.println();
+        System.out.printf("%d tasks (loaded in %d ms), %d commands in %d ms: %.0f commands/s%n", replay.taskCount,
+                replay.loadNanos / 1_000_000, commands.size(), replay.elapsedNanos / 1_000_000,
+                commands.size() / (replay.elapsedNanos / 1e9));
+        System.out.printf("%-10s %8s %10s %10s %10s %10s%n", "command", "count", "p50 us", "p99 us", "p999 us",
+                "max us");
+        for (Map.Entry<String, Latencies> entry : replay.byCommand.entrySet()) {
+            long[] sorted = entry.getValue().sorted();
+            System.out.printf("%-10s %8d %10.1f %10.1f %10.1f %10.1f%n", entry.getKey(), sorted.length,
+                    Percentiles.of(sorted, PERCENTILES[0]) / 1e3, Percentiles.of(sorted, PERCENTILES[1]) / 1e3,
+                    Percentiles.of(sorted, PERCENTILES[2]) / 1e3, sorted[sorted.length - 1] / 1e3);
+        }
+
+        long[] all = replay.all.sorted();
+        return String.format("%10d %10d %12.0f %10.1f %10.1f %10.1f", replay.taskCount, commands.size(),
+                commands.size() / (replay.elapsedNanos / 1e9), Percentiles.of(all, PERCENTILES[0]) / 1e3,
+                Percentiles.of(all, PERCENTILES[1]) / 1e3, Percentiles.of(all, PERCENTILES[2]) / 1e3);
+    }
+
+    private static Replay replay(File folder, List<String> commands) throws IOException {
+        File copy = Files.createTempDirectory("sunny-scale").toFile();
+        Files.copy(new File(folder, "sunny.txt").toPath(), new File(copy, "sunny.txt").toPath());
+        Replay replay = new Replay();
+
+        long loadStart = System.nanoTime();
+        Storage storage = new Storage(new File(copy, "sunny.txt").getPath());
+        TaskList taskList = new TaskList();
+        taskList.addLoadedTasks(storage.loadTasks(), storage.getNextId());
+        replay.loadNanos = System.nanoTime() - loadStart;
+        replay.taskCount = taskList.size();
+        storage.attach(taskList);
+        Ui ui = new Ui(text -> printedChars += text.length());
+        ui.setDeferredFlush(true);
+        Parser parser = new Parser(taskList, ui);
+
+        long start = System.nanoTime();
+        for (String command : commands) {
+            int space = command.indexOf(' ');
+            String keyword = space < 0 ? command : command.substring(0, space);
+            long sent = System.nanoTime();
+            parser.parseCommand(command);
+            ui.flush();
+            long latency = System.nanoTime() - sent;
+            replay.byCommand.computeIfAbsent(keyword, k -> new Latencies()).add(latency);
+            replay.all.add(latency);
+        }
+        replay.elapsedNanos = System.nanoTime() - start;
+
+        storage.flush();
+        storage.close();
+        deleteFolder(copy);
+        return replay;
+    }
+
+    private static void deleteFolder(File folder) {
+        File[] files = folder.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        folder.delete();
+    }
+
+    private static class Replay {
+        private final Map<String, Latencies> byCommand = new LinkedHashMap<>();
+        private final Latencies all = new Latencies();
+        private int taskCount;
+        private long loadNanos;
+        private long elapsedNanos;
+    }
+
+    // latencies in nanoseconds, kept in a growing array so recording one does not box it
+    private static class Latencies {
+        private long[] values = new long[1024];
+        private int count;
+
+        private void add(long latency) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = latency;
+        }
+
+        private long[] sorted() {
+            long[] sorted = Arrays.copyOf(values, count);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+import storage.Storage;
+import tasklist.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * This SunnyLoadTest.java starts a SunnyServer on a free port with its own task file in a temporary folder,
+ * connects many clients at once and has each of them send a mix of todo, find, mark and due commands.
+ * It prints the throughput and the command latencies, then checks that no add was lost and that the
+ * journal on disk replays to exactly the task list the server ended up with. data/sunny.txt is never touched.
+ *
+ * Usage: SunnyLoadTest [clients] [commands per client]   (defaults: 50 clients, 200 commands each)
+ *   e.g. ./gradlew loadTest --args='100 500'
+ */
+
+public class SunnyLoadTest {
+    public static void main(String[] args) throws Exception {
+        int clientCount = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int commandsPerClient = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        File directory = Files.createTempDirectory("sunny-load").toFile();
+        String taskFile = new File(directory, "sunny.txt").getPath();
+        Storage storage = new Storage(taskFile);
+        TaskList taskList = new TaskList();
+        storage.attach(taskList);
+        SunnyServer server = new SunnyServer(taskList, 0);
+        Thread acceptor = new Thread(() -> {
+            try {
+                server.serve();
+            } catch (IOException e) {
+                System.out.println("Sunny server stopped: " + e.getMessage());
+            }
+        });
+        acceptor.start();
+
+        ExecutorService clients = SunnyServer.newConnectionExecutor();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int i = 0; i < clientCount; i++) {
+            int clientNumber = i;
+            results.add(clients.submit(() -> runClient(server.getPort(), clientNumber, commandsPerClient, start)));
+        }
+
+        long startTime = System.nanoTime();
+        start.countDown();
+        long[] latencies = new long[0];
+        int addCount = 0;
+        for (Future<long[]> result : results) {
+            long[] clientLatencies = result.get();
+            int offset = latencies.length;
+            latencies = Arrays.copyOf(latencies, offset + clientLatencies.length - 1);
+            System.arraycopy(clientLatencies, 1, latencies, offset, clientLatencies.length - 1);
+            addCount += (int) clientLatencies[0];
+        }
+        long elapsedNanos = System.nanoTime() - startTime;
+        clients.shutdown();
+        server.close();
+        storage.flush();
+        storage.close();
+
+        Arrays.sort(latencies);
+        System.out.printf("%d clients, %d commands in %d ms: %.0f commands/s%n", clientCount, latencies.length,
+                elapsedNanos / 1_000_000, latencies.length / (elapsedNanos / 1e9));
+        System.out.printf("latency p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                Percentiles.of(latencies, 0.50) / 1e6, Percentiles.of(latencies, 0.99) / 1e6,
+                latencies[latencies.length - 1] / 1e6);
+
+        List<Task> onDisk = new Storage(taskFile).loadTasks();
+        boolean isSaved = onDisk.size() == taskList.size();
+        for (int i = 0; isSaved && i < onDisk.size(); i++) {
+            isSaved = onDisk.get(i).getTaskStorageString().equals(taskList.getTask(i).getTaskStorageString());
+        }
+        System.out.println("tasks added: " + addCount + ", in the list: " + taskList.size()
+                + ", journal replays to the same list: " + isSaved);
+        boolean isPassed = addCount == taskList.size() && isSaved;
+        System.out.println(isPassed ? "Load test passed ✅" : "Load test FAILED ❌");
+        System.exit(isPassed ? 0 : 1);
+    }
+
+    // returns the number of todos added followed by the latency of every command in nanoseconds
+    private static long[] runClient(int port, int clientNumber, int commandCount, CountDownLatch start)
+            throws Exception {
+        Random random = new Random(clientNumber);
+        long[] latencies = new long[commandCount + 1];
+        try (SunnyClient client = new SunnyClient(port)) {
+            client.readResponse();
+            start.await();
+            for (int i = 0; i < commandCount; i++) {
+                int kind = random.nextInt(10);
+                String command;
+                if (kind < 6) {
+                    command = "todo load test " + clientNumber + " " + i;
+                    latencies[0]++;
+                } else if (kind < 8) {
+                    command = "find test " + clientNumber;
+                } else if (kind < 9) {
+                    command = (random.nextBoolean() ? "mark " : "unmark ") + (1 + random.nextInt(clientNumber + i + 1));
+                } else {
+                    command = "due before 2030-01-01";
+                }
+                long sent = System.nanoTime();
+                if (client.send(command) == null) {
+                    throw new IOException("the server closed the connection of client " + clientNumber);
+                }
+                latencies[i + 1] = System.nanoTime() - sent;
+            }
+            client.send("bye");
+        }
+        return latencies;
+    }
+}
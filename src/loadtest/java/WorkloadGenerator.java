@@ -0,0 +1,219 @@
+import tasklist.*;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+/**
+ * This WorkloadGenerator.java writes a task file (sunny.txt) and a command script (commands.txt) to replay against it,
+ * the same files for the same options every time. The tasks look like a real list: a verb and a thing, a group word
+ * and for some a number, with deadlines and events spread over a year. The script mixes adds, finds, pages of list,
+ * marks, dues, events and deletes, and only ever refers to task numbers that exist at that point of the script.
+ *
+ * Options (all optional):
+ *   --tasks <n>              tasks in the task file (default: 10000)
+ *   --commands <n>           commands in the script (default: 10000)
+ *   --mix <t>/<d>/<e>        weights of todos, deadlines and events, for the file and for adds (default: 60/30/10)
+ *   --find-selectivity <f>   fraction of the tasks every find matches (default: 0.01)
+ *   --delete-rate <f>        fraction of the commands that are deletes (default: 0.05)
+ *   --seed <n>               seed of the random choices (default: 42)
+ *
+ * Usage: WorkloadGenerator [options] [output folder]   (default folder: workload)
+ *   e.g. ./gradlew generateWorkload --args='--tasks 100000 workload'
+ */
+
+public class WorkloadGenerator {
+    private static final String[] VERBS = { "buy", "read", "call", "write", "fix", "review", "plan", "clean" };
+    private static final String[] THINGS = { "groceries", "chapter", "mum", "report", "bike", "pull request",
+            "trip", "kitchen", "slides", "budget" };
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 9, 0);
+    private static final int MINUTES_IN_YEAR = 365 * 24 * 60;
+
+    // the share of every other command, the delete rate is taken off the top
+    private static final int ADD_WEIGHT = 35;
+    private static final int FIND_WEIGHT = 20;
+    private static final int MARK_WEIGHT = 20;
+    private static final int LIST_WEIGHT = 10;
+    private static final int DUE_WEIGHT = 10;
+    private static final int EVENTS_WEIGHT = 5;
+
+    int taskCount = 10_000;
+    int commandCount = 10_000;
+    int todoWeight = 60;
+    int deadlineWeight = 30;
+    int eventWeight = 10;
+    double findSelectivity = 0.01;
+    double deleteRate = 0.05;
+    long seed = 42;
+    String outputFolder = "workload";
+
+    public static void main(String[] args) throws IOException {
+        WorkloadGenerator generator = fromArgs(args);
+        File folder = new File(generator.outputFolder);
+        folder.mkdirs();
+        generator.writeTaskFile(new File(folder, "sunny.txt"));
+        generator.writeScript(new File(folder, "commands.txt"));
+        System.out.println("Wrote " + generator.taskCount + " tasks and " + generator.commandCount
+                + " commands to " + folder.getPath());
+    }
+
+    /**
+     * Reads the options described above, anything that is not an option is the output folder.
+     *
+     * @throws IllegalArgumentException for an unknown option or a value that cannot be used
+     */
+    public static WorkloadGenerator fromArgs(String[] args) {
+        WorkloadGenerator generator = new WorkloadGenerator();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                generator.outputFolder = args[i];
+                continue;
+            }
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("The option " + args[i] + " needs a value");
+            }
+            String value = args[++i];
+            switch (args[i - 1]) {
+                case "--tasks":
+                    generator.taskCount = Integer.parseInt(value);
+                    break;
+                case "--commands":
+                    generator.commandCount = Integer.parseInt(value);
+                    break;
+                case "--mix":
+                    String[] weights = value.split("/");
+                    if (weights.length != 3) {
+                        throw new IllegalArgumentException("The mix looks like 60/30/10 (todos/deadlines/events)");
+                    }
+                    generator.todoWeight = Integer.parseInt(weights[0]);
+                    generator.deadlineWeight = Integer.parseInt(weights[1]);
+                    generator.eventWeight = Integer.parseInt(weights[2]);
+                    break;
+                case "--find-selectivity":
+                    generator.findSelectivity = Double.parseDouble(value);
+                    break;
+                case "--delete-rate":
+                    generator.deleteRate = Double.parseDouble(value);
+                    break;
+                case "--seed":
+                    generator.seed = Long.parseLong(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i - 1]);
+            }
+        }
+        if (generator.findSelectivity <= 0 || generator.findSelectivity > 1) {
+            throw new IllegalArgumentException("The find selectivity is a fraction above 0, up to 1");
+        }
+        if (generator.deleteRate < 0 || generator.deleteRate >= 1) {
+            throw new IllegalArgumentException("The delete rate is a fraction from 0, below 1");
+        }
+        if (generator.todoWeight + generator.deadlineWeight + generator.eventWeight <= 0) {
+            throw new IllegalArgumentException("At least one of the mix weights has to be above 0");
+        }
+        return generator;
+    }
+
+    // every task gets one of this many group words, so a find for one of them matches the selectivity
+    private int groupCount() {
+        return (int) Math.max(1, Math.round(1 / findSelectivity));
+    }
+
+    // group words all have the same width, so no group word is the start of another one, e.g. g07 and g070
+    private String groupWord(int group) {
+        int width = Integer.toString(groupCount() - 1).length();
+        StringBuilder word = new StringBuilder("g").append(group);
+        word.insert(1, "0".repeat(width - (word.length() - 1)));
+        return word.toString();
+    }
+
+    public void writeTaskFile(File file) throws IOException {
+        Random random = new Random(seed);
+        TaskCodec codec = new TaskCodec();
+        try (Writer writer = new BufferedWriter(new FileWriter(file))) {
+            for (int i = 0; i < taskCount; i++) {
+                Task task = createTask(random, i);
+                codec.write(task.withId(i + 1).withDone(random.nextInt(3) == 0), writer);
+            }
+        }
+    }
+
+    // one in four descriptions ends with the task's number, the rest repeat the way real lists do
+    private Task createTask(Random random, int number) {
+        String description = VERBS[random.nextInt(VERBS.length)] + " " + THINGS[random.nextInt(THINGS.length)]
+                + " " + groupWord(random.nextInt(groupCount())) + (random.nextInt(4) == 0 ? " " + number : "");
+        int kind = random.nextInt(todoWeight + deadlineWeight + eventWeight);
+        if (kind < todoWeight) {
+            return new Todo(description);
+        }
+        LocalDateTime time = START.plusMinutes(random.nextInt(MINUTES_IN_YEAR));
+        if (kind < todoWeight + deadlineWeight) {
+            return new Deadline(description, time);
+        }
+        return new Event(description, format(time), format(time.plusHours(1 + random.nextInt(3))));
+    }
+
+    public void writeScript(File file) throws IOException {
+        // a different stream than the task file, so changing the task count does not change the commands
+        Random random = new Random(seed * 31 + 7);
+        int size = taskCount;
+        int added = 0;
+        int otherWeight = ADD_WEIGHT + FIND_WEIGHT + MARK_WEIGHT + LIST_WEIGHT + DUE_WEIGHT + EVENTS_WEIGHT;
+        try (Writer writer = new BufferedWriter(new FileWriter(file))) {
+            for (int i = 0; i < commandCount; i++) {
+                String command;
+                if (size > 0 && random.nextDouble() < deleteRate) {
+                    command = "delete " + (1 + random.nextInt(size));
+                    size--;
+                } else {
+                    int kind = random.nextInt(otherWeight);
+                    if (kind < ADD_WEIGHT || size == 0) {
+                        // the number makes every added task new, so no add is turned away as a duplicate
+                        command = addCommand(random, taskCount + added);
+                        added++;
+                        size++;
+                    } else if ((kind -= ADD_WEIGHT) < FIND_WEIGHT) {
+                        command = "find " + groupWord(random.nextInt(groupCount()));
+                    } else if ((kind -= FIND_WEIGHT) < MARK_WEIGHT) {
+                        command = (random.nextBoolean() ? "mark " : "unmark ") + (1 + random.nextInt(size));
+                    } else if ((kind -= MARK_WEIGHT) < LIST_WEIGHT) {
+                        command = "list --page " + (1 + random.nextInt(Math.max(1, size / 20)));
+                    } else if ((kind -= LIST_WEIGHT) < DUE_WEIGHT) {
+                        command = "due before " + START.toLocalDate().plusDays(random.nextInt(365));
+                    } else {
+                        LocalDate from = START.toLocalDate().plusDays(random.nextInt(365));
+                        command = "events during " + from + " " + from.plusDays(1);
+                    }
+                }
+                writer.write(command);
+                writer.write('\n');
+            }
+        }
+    }
+
+    private String addCommand(Random random, int number) {
+        Task task = createTask(random, number);
+        String description = task.getDescription().endsWith(" " + number)
+                ? task.getDescription() : task.getDescription() + " " + number;
+        if (task instanceof Deadline) {
+            return "deadline " + description + " /by " + format(((Deadline) task).getDeadlineDate());
+        }
+        if (task instanceof Event) {
+            Event event = (Event) task;
+            return "event " + description + " /from " + event.getEventStart() + " /to " + event.getEventEnd();
+        }
+        return "todo " + description;
+    }
+
+    // yyyy-MM-dd HH:mm, the way dates are typed into Sunny
+    private static String format(LocalDateTime time) {
+        StringBuilder text = new StringBuilder(16);
+        TaskCodec.appendDateTime(time, text);
+        return text.toString();
+    }
+}
@@ -1,51 +1,223 @@
+import metrics.Metrics;
 import parser.Parser;
+import storage.MappedTaskList;
 import storage.Storage;
 import tasklist.*;
 import ui.Ui;
 
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * This Sunny.java is the main class for the Sunny Task Management System.
  * to help user manage different types of task such as their to do task,
  * deadline task and events that they may have.
  * Provides a friendly interface to manage tasks such as to-dos, deadlines, and events.
+ * Run with --batch <file> (or --batch alone to read standard input) to apply a whole script of commands
+ * in one pass, saving once at the end and printing only a summary.
+ * Add --quiet to leave out the separators and emoji, e.g. when another program reads the output.
+ * Add --mapped to keep the tasks in data/sunny.map and use it in place through a memory mapping (see MappedTaskList),
+ * so starting takes the same time however many tasks there are. The first run creates it from data/sunny.txt,
+ * after that data/sunny.map is the task file until Sunny runs without --mapped, which saves it back to data/sunny.txt.
+ * Add --binary to keep the tasks in data/sunny.bin in the binary format (see BinaryTaskFormat) instead of data/sunny.txt,
+ * e.g. after converting the text file with TaskFileConverter; --mapped then starts from data/sunny.bin.
+ * A big data/sunny.txt is loaded on a background thread, so commands can be typed right away: new todos, deadlines
+ * and events are added once the saved tasks are in, and other commands wait for them, showing how far the load is.
  * */
 
 public class Sunny {
     private static TaskList taskList;
-    private static final Storage storage = new Storage("data/sunny.txt");
+    // data/sunny.bin with --binary, data/sunny.txt otherwise
+    private static String taskFilePath;
+    private static Storage storage;
     private static Ui ui;
 
+    // set when running with --mapped
+    private static MappedTaskList mappedTaskList;
+    // set while a big task file loads in the background, until the outcome has been reported
+    private static CompletableFuture<Integer> backgroundLoad;
+
     public static void main(String[] args) {
         ui = new ui.Ui();
-        taskList = new TaskList();
-        Parser parser = new Parser(taskList, ui);
+        boolean isMapped = Arrays.asList(args).contains("--mapped");
+        taskFilePath = Arrays.asList(args).contains("--binary") ? "data/sunny.bin" : "data/sunny.txt";
+        storage = new Storage(taskFilePath);
+        boolean isBatchMode = args.length > 0 && args[0].equals("--batch");
+        String batchFile = args.length > 1 && !args[1].startsWith("--") ? args[1] : "-";
+        if (isBatchMode) {
+            ui.setBatchMode(true);
+        }
+        // output is written once per command instead of once per line
+        ui.setDeferredFlush(true);
+        ui.setQuietMode(Arrays.asList(args).contains("--quiet"));
+        storage.setUi(ui);
 
         ui.displayWelcomeMessage();
+        ui.flush();
+        // journal records are written in the background, make sure they reach the disk even if input ends without bye
+        Runtime.getRuntime().addShutdownHook(new Thread(storage::flush));
+        // the same numbers as the stats command, for jconsole
+        Metrics.registerMBean();
 
         // this portion is used to load the saved task list on hard disk
         try {
-            List<Task> loadedTasks = storage.loadTasks();
-            taskList.getTasks().addAll(loadedTasks);
+            if (isMapped) {
+                // nothing is read here, the tasks are read from the mapped file when a command needs them
+                mappedTaskList = new MappedTaskList(storage.openMappedFile());
+                taskList = mappedTaskList;
+            } else if (!isBatchMode && storage.isLargeSnapshot()) {
+                taskList = new TaskList();
+                backgroundLoad = taskList.loadInBackground(storage::loadTasks, storage::getLoadProgress,
+                        storage::getNextId);
+                ui.printMessage("Sunny is loading your saved tasks in the background, you can start typing right away. ⏳");
+            } else {
+                taskList = new TaskList();
+                taskList.addLoadedTasks(storage.loadTasks(), storage.getNextId());
+            }
             // if there are any tasks saved, let the user know to use the "list" input to view available command
-            if (!loadedTasks.isEmpty()) {
+            if (backgroundLoad == null && taskList.size() > 0) {
                 ui.printMessage("Great! Sunny can see that you got some tasks already loaded. Type 'list' to check them out. \uD83D\uDC40");
             }
         } catch (Exception e) {
             ui.displayErrorMessage("Something went wrong while loading tasks from storage. Please try again later. \uD83D\uDE15");
+            if (taskList == null) {
+                ui.flush();
+                return;
+            }
+        }
+        ui.flush();
+        Parser parser = new Parser(taskList, ui);
+
+        if (isBatchMode) {
+            runBatch(parser, batchFile);
+            ui.flush();
+            return;
         }
+        // from here on every change is journaled (or written in place), batch mode saves once at the end instead;
+        // a mapped task list writes its changes to the mapped file itself, attach leaves it alone
+        storage.attach(taskList);
 
         Scanner in = new Scanner(System.in);
         while (true) {
             String input = in.nextLine();
-            if (input.equalsIgnoreCase("bye")||input.equalsIgnoreCase("exit")||input.equalsIgnoreCase("end")||input.equalsIgnoreCase("quit")) {
+            if (Parser.isExitCommand(input)) {
+                // tasks added while loading are only journaled once the load is done
+                taskList.awaitLoaded();
+                reportBackgroundLoad(parser);
+                if (mappedTaskList != null) {
+                    mappedTaskList.close();
+                }
+                storage.flush();
+                storage.close();
                 ui.displayGoodbyeMessage();
+                ui.flush();
                 break;
             }
+            reportBackgroundLoad(parser);
             parser.parseCommand(input);
+            reportBackgroundLoad(parser);
+            ui.flush();
         }
         in.close();
     }
-}
\ No newline at end of file
+
+    // tells the user once the background load is done, along with any added task that turned out to be saved already
+    // and the conflicts of events added meanwhile
+    private static void reportBackgroundLoad(Parser parser) {
+        if (backgroundLoad == null || !backgroundLoad.isDone()) {
+            return;
+        }
+        try {
+            int count = backgroundLoad.join();
+            ui.printMessage("All " + count + (count == 1 ? " saved task is" : " saved tasks are")
+                    + " loaded. Type 'list' to check them out. ✅");
+        } catch (CompletionException e) {
+            ui.displayErrorMessage("Something went wrong while loading tasks from storage. Please try again later. \uD83D\uDE15");
+        }
+        backgroundLoad = null;
+        List<Task> duplicates = taskList.takeDroppedDuplicates();
+        if (!duplicates.isEmpty()) {
+            StringBuilder message = new StringBuilder("These tasks you added while loading were already in your task list, so they were not added again: ❌");
+            for (Task task : duplicates) {
+                message.append("\n ").append(task);
+            }
+            ui.displayErrorMessage(message.toString());
+        }
+        parser.reportDeferredConflicts(duplicates);
+    }
+
+    /**
+     * Applies every command of a script in one pass without printing or saving per command,
+     * then saves the task list once and prints a summary with the errors of each failing line.
+     * If the script cannot be read to the end, the commands before the unreadable line are still saved,
+     * and the summary says at which line the batch stopped.
+     *
+     * @param filePath the script to run, or "-" to read it from standard input
+     */
+    private static void runBatch(Parser parser, String filePath) {
+        long startTime = System.nanoTime();
+        int commandCount = 0;
+        List<String> errors = new ArrayList<>(ui.takeBatchErrors());
+
+        int lineNumber = 0;
+        try (BufferedReader reader = filePath.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in))
+                : new BufferedReader(new FileReader(filePath))) {
+            String input;
+            while ((input = reader.readLine()) != null) {
+                lineNumber++;
+                if (input.isBlank()) {
+                    continue;
+                }
+                if (Parser.isExitCommand(input.trim())) {
+                    break;
+                }
+                commandCount++;
+                parser.parseCommand(input);
+                for (String error : ui.takeBatchErrors()) {
+                    errors.add("line " + lineNumber + " (" + input + "): " + error);
+                }
+            }
+        } catch (IOException e) {
+            if (lineNumber == 0) {
+                ui.setBatchMode(false);
+                ui.displayErrorMessage("Sunny could not read the batch file: " + e.getMessage() + " ❗");
+                return;
+            }
+            // the commands up to here are applied already, they are saved below like a batch that ran to the end
+            errors.add("line " + (lineNumber + 1) + ": Sunny could not read the batch file from here on, the batch stopped"
+                    + " and the " + commandCount + (commandCount == 1 ? " command" : " commands")
+                    + " before it are saved: " + e.getMessage() + " ❗");
+        }
+
+        // one commit for the whole batch, this also folds away any journal left from earlier sessions
+        ui.setBatchMode(false);
+        try {
+            if (mappedTaskList != null) {
+                mappedTaskList.flush();
+            } else {
+                storage.save(taskFilePath, taskList.getTasks(), taskList.getNextId());
+            }
+            storage.close();
+        } catch (Exception e) {
+            ui.displayErrorMessage("Uh-oh, I wasn’t able to save your tasks. Please try again later. \uD83D\uDD04" + e.getMessage());
+            return;
+        }
+
+        long elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+        StringBuilder summary = new StringBuilder("Batch finished: ")
+                .append(commandCount).append(commandCount == 1 ? " command, " : " commands, ")
+                .append(errors.size()).append(errors.size() == 1 ? " error" : " errors")
+                .append(" in ").append(elapsedMillis).append(" ms. ")
+                .append(ui.displayTaskCount(taskList.size()));
+        for (String error : errors) {
+            summary.append("\n").append(error);
+        }
+        ui.printMessage(summary.toString());
+    }
+}
@@ -0,0 +1,84 @@
+import parser.Parser;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This SunnyClient.java is a thin terminal client for SunnyServer.
+ * It sends every line typed (or piped in) to the server and prints the answer, so it works just like Sunny
+ * except that the task list lives in the server and is shared with every other client.
+ * Run with --port <number> if the server does not use the default port.
+ */
+
+public class SunnyClient implements Closeable {
+    private final Socket socket;
+    private final BufferedReader in;
+    private final Writer out;
+
+    public SunnyClient(int port) throws IOException {
+        this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        this.socket.setTcpNoDelay(true);
+        this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+    }
+
+    public static void main(String[] args) {
+        int port = SunnyServer.DEFAULT_PORT;
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals("--port")) {
+                port = Integer.parseInt(args[i + 1]);
+            }
+        }
+
+        try (SunnyClient client = new SunnyClient(port);
+             BufferedReader console = new BufferedReader(new InputStreamReader(System.in))) {
+            System.out.print(client.readResponse());
+            String input;
+            while ((input = console.readLine()) != null) {
+                String response = client.send(input);
+                if (response == null) {
+                    System.out.println("Sunny server closed the connection. ❗");
+                    return;
+                }
+                System.out.print(response);
+                if (Parser.isExitCommand(input)) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Sunny could not reach the server on port " + port + ": " + e.getMessage() + " ❗");
+        }
+    }
+
+    /**
+     * Sends one command and waits for its answer.
+     *
+     * @return the output of the command, or null if the server closed the connection
+     */
+    public String send(String command) throws IOException {
+        out.write(command);
+        out.write('\n');
+        out.flush();
+        return readResponse();
+    }
+
+    // reads up to the end of response marker, or returns null if the connection ends first
+    public String readResponse() throws IOException {
+        StringBuilder response = new StringBuilder();
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.equals(SunnyServer.END_OF_RESPONSE)) {
+                return response.toString();
+            }
+            response.append(line).append('\n');
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
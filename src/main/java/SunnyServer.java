@@ -0,0 +1,146 @@
+import metrics.Metrics;
+import parser.Parser;
+import storage.Storage;
+import tasklist.*;
+import ui.Ui;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This SunnyServer.java lets several terminals and scripts share one task list.
+ * It loads data/sunny.txt once, listens on a local socket (127.0.0.1 only) and runs the usual commands
+ * of every connection against the same TaskList, so all clients see each other's changes
+ * and everything is journaled through one Storage instead of each process overwriting the others' saves.
+ * Each connection gets its own thread, a virtual thread when the Java runtime has them.
+ *
+ * The protocol is plain text lines: the client sends one command per line, and the server answers with
+ * the output of that command followed by a line holding only {@link #END_OF_RESPONSE}.
+ * Run with --port <number> to listen somewhere other than {@link #DEFAULT_PORT}, and use SunnyClient to connect.
+ */
+
+public class SunnyServer {
+    public static final int DEFAULT_PORT = 4545;
+    // sent on a line of its own after every response, so a client knows when to stop reading
+    static final String END_OF_RESPONSE = "\u0004";
+
+    private final TaskList taskList;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections;
+
+    // use port 0 to let the system pick a free port
+    public SunnyServer(TaskList taskList, int port) throws IOException {
+        this.taskList = taskList;
+        this.serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+        this.connections = newConnectionExecutor();
+    }
+
+    public static void main(String[] args) {
+        int port = DEFAULT_PORT;
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals("--port")) {
+                port = Integer.parseInt(args[i + 1]);
+            }
+        }
+
+        Metrics.registerMBean();
+        Storage storage = new Storage("data/sunny.txt");
+        TaskList taskList = new TaskList();
+        try {
+            List<Task> loadedTasks = storage.loadTasks();
+            taskList.addLoadedTasks(loadedTasks, storage.getNextId());
+        } catch (Exception e) {
+            System.out.println("Something went wrong while loading tasks from storage. Please try again later. 😕");
+            return;
+        }
+        storage.attach(taskList);
+        // journal records are written in the background, make sure they reach the disk when the server is stopped
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            storage.flush();
+            storage.close();
+        }));
+
+        try {
+            SunnyServer server = new SunnyServer(taskList, port);
+            System.out.println("Sunny is sharing " + taskList.size() + " tasks on 127.0.0.1:" + server.getPort()
+                    + ". Press Ctrl+C to stop. ☀️");
+            server.serve();
+        } catch (IOException e) {
+            System.out.println("Sunny could not start the server: " + e.getMessage() + " ❗");
+        }
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    // accepts connections until the server is closed
+    public void serve() throws IOException {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (SocketException e) {
+                // closed while waiting for a connection
+                break;
+            }
+            connections.execute(() -> handle(socket));
+        }
+    }
+
+    // stops accepting connections, connections that are still open keep running until their client leaves
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdown();
+    }
+
+    // runs the commands of one client with its own Parser and Ui, against the shared task list
+    private void handle(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintStream out = new PrintStream(new BufferedOutputStream(socket.getOutputStream()), false,
+                     StandardCharsets.UTF_8)) {
+            // the Ui only fills the stream's buffer, it goes out in one write together with the end marker
+            Ui ui = new Ui(out::append);
+            ui.setDeferredFlush(true);
+            Parser parser = new Parser(taskList, ui);
+
+            ui.displayWelcomeMessage();
+            endResponse(ui, out);
+            String input;
+            while ((input = in.readLine()) != null) {
+                if (Parser.isExitCommand(input)) {
+                    ui.displayGoodbyeMessage();
+                    endResponse(ui, out);
+                    break;
+                }
+                parser.parseCommand(input);
+                endResponse(ui, out);
+            }
+        } catch (IOException e) {
+            // the client went away, nothing to clean up beyond closing the socket
+        }
+    }
+
+    private static void endResponse(Ui ui, PrintStream out) {
+        ui.flush();
+        out.append(END_OF_RESPONSE).append('\n');
+        out.flush();
+    }
+
+    // virtual threads when the runtime has them (Java 21+), otherwise a pool that starts a thread per connection
+    static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
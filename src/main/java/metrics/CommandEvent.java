@@ -0,0 +1,48 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * This CommandEvent.java is the Flight Recorder event of one Parser.parseCommand, with the command keyword
+ * and how it ended. Like the other Sunny events it only costs a few field writes while no recording is on,
+ * and the keyword String is only made when the event is going to be written.
+ */
+
+@Name("sunny.Command")
+@Label("Command")
+@Category("Sunny")
+@Description("One command typed into Sunny, from the input line to the rendered output")
+@StackTrace(false)
+public class CommandEvent extends jdk.jfr.Event {
+    // how a command ended, written to the event as its label since Flight Recorder fields cannot be enums
+    public enum Outcome {
+        OK("ok"),
+        // the command ran but told the user something was wrong, e.g. a task number out of range
+        ERROR("error"),
+        UNKNOWN("unknown command"),
+        // the change was made but could not be written to the task file
+        NOT_SAVED("not saved"),
+        // the command threw instead of returning
+        FAILED("failed");
+
+        private final String label;
+
+        Outcome(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    @Label("Command")
+    public String command;
+
+    @Label("Outcome")
+    public String outcome;
+}
@@ -0,0 +1,108 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This LatencyHistogram.java counts how long something took, in nanoseconds, in log-linear buckets:
+ * every power of two is split into 8 buckets, so any percentile read back is within 12.5% of the real value,
+ * from 1 ns up to the largest long, with a fixed 488 counters.
+ * Recording is one atomic add (and a compare-and-set while the maximum grows) and never allocates,
+ * so it can stay on in the hot paths; reading the count or a percentile walks the buckets instead.
+ * Safe to record into from many threads at once.
+ */
+
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void record(long nanos) {
+        nanos = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(nanos));
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    // records the time since startNanos, which came from System.nanoTime()
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Returns the value that the given fraction of the recorded values are at or below,
+     * rounded up to the end of its bucket but never above the largest value recorded.
+     *
+     * @param fraction e.g. 0.99 for the 99th percentile
+     * @return the percentile in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getPercentile(double fraction) {
+        long total = getCount();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(bucketEnd(i), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    // not atomic: values recorded while resetting may be kept or dropped
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        maxNanos.set(0);
+    }
+
+    // values below 8 get a bucket each, above that the top 3 bits after the highest set bit pick the bucket
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    // the largest value that falls into the bucket
+    static long bucketEnd(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long start = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return start + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,39 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * This LoadEvent.java is the Flight Recorder event of one Storage.loadTasks.
+ * A line that is not a task stops the load, so parse failures is 0 or 1, with the reason in error.
+ */
+
+@Name("sunny.Load")
+@Label("Load")
+@Category("Sunny")
+@Description("The task file read and its journal replayed by Storage.loadTasks")
+@StackTrace(false)
+public class LoadEvent extends jdk.jfr.Event {
+    @Label("File")
+    public String path;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Lines Parsed")
+    public int linesParsed;
+
+    @Label("Journal Records Replayed")
+    public int journalRecords;
+
+    @Label("Parse Failures")
+    public int parseFailures;
+
+    @Label("Error")
+    public String error;
+}
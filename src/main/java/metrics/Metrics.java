@@ -0,0 +1,132 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * This Metrics.java holds the latency histograms and counters of the running Sunny, for the stats command and JMX:
+ *   command   Parser.parseCommand, from the input line to the rendered output, and each command on its own
+ *   persist   writing one change to the journal (or the task file in place) while the task list is locked
+ *   save      Storage.save, writing a whole snapshot
+ *   load      Storage.loadTasks, reading the snapshot and replaying the journal
+ *   output    the Ui handing its buffered text to the console or socket
+ * plus how many bytes went to the task files and how many tasks were loaded.
+ * Everything is recorded without allocating, see {@link LatencyHistogram}.
+ */
+
+public class Metrics {
+    public static final String MBEAN_NAME = "sunny:type=Stats";
+
+    public static final LatencyHistogram COMMANDS = new LatencyHistogram("command");
+    public static final LatencyHistogram PERSISTS = new LatencyHistogram("persist");
+    public static final LatencyHistogram SAVES = new LatencyHistogram("save");
+    public static final LatencyHistogram LOADS = new LatencyHistogram("load");
+    public static final LatencyHistogram OUTPUTS = new LatencyHistogram("output");
+
+    private static final Map<String, LatencyHistogram> commandHistograms = new ConcurrentHashMap<>();
+    private static final AtomicLong bytesWritten = new AtomicLong();
+    private static final AtomicLong tasksLoaded = new AtomicLong();
+
+    private Metrics() {
+    }
+
+    // the histogram of one command keyword, looked up once when the command is registered
+    public static LatencyHistogram commandHistogram(String keyword) {
+        return commandHistograms.computeIfAbsent(keyword.toLowerCase(), LatencyHistogram::new);
+    }
+
+    public static void addBytesWritten(long bytes) {
+        bytesWritten.addAndGet(bytes);
+    }
+
+    public static void addTasksLoaded(long count) {
+        tasksLoaded.addAndGet(count);
+    }
+
+    public static long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public static long getTasksLoaded() {
+        return tasksLoaded.get();
+    }
+
+    public static void reset() {
+        for (LatencyHistogram histogram : allHistograms().values()) {
+            histogram.reset();
+        }
+        bytesWritten.set(0);
+        tasksLoaded.set(0);
+    }
+
+    /**
+     * One line per histogram that has recorded anything, with its count and p50/p99/p999/max;
+     * the commands are listed one by one after the command line.
+     */
+    public static String[] latencyReport() {
+        Map<String, LatencyHistogram> histograms = allHistograms();
+        String[] lines = new String[histograms.size() + 1];
+        int count = 0;
+        lines[count++] = String.format("%-12s %9s %10s %10s %10s %10s", "", "count", "p50", "p99", "p999", "max");
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            lines[count++] = String.format("%-12s %9d %10s %10s %10s %10s", entry.getKey(), histogram.getCount(),
+                    formatNanos(histogram.getPercentile(0.50)), formatNanos(histogram.getPercentile(0.99)),
+                    formatNanos(histogram.getPercentile(0.999)), formatNanos(histogram.getMaxNanos()));
+        }
+        return Arrays.copyOf(lines, count);
+    }
+
+    // the histograms in the order of the report, each command right after the command histogram
+    private static Map<String, LatencyHistogram> allHistograms() {
+        Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+        histograms.put(COMMANDS.getName(), COMMANDS);
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(commandHistograms).entrySet()) {
+            histograms.put("  " + entry.getKey(), entry.getValue());
+        }
+        histograms.put(PERSISTS.getName(), PERSISTS);
+        histograms.put(SAVES.getName(), SAVES);
+        histograms.put(LOADS.getName(), LOADS);
+        histograms.put(OUTPUTS.getName(), OUTPUTS);
+        return histograms;
+    }
+
+    // e.g. 850 ns, 12.3 us, 4.1 ms, 1.25 s
+    public static String formatNanos(long nanos) {
+        if (nanos < 1_000) {
+            return nanos + " ns";
+        }
+        if (nanos < 1_000_000) {
+            return String.format("%.1f us", nanos / 1e3);
+        }
+        if (nanos < 1_000_000_000) {
+            return String.format("%.1f ms", nanos / 1e6);
+        }
+        return String.format("%.2f s", nanos / 1e9);
+    }
+
+    /**
+     * Makes the metrics readable in jconsole under sunny:type=Stats. Registering twice is harmless,
+     * and Sunny runs on without JMX if the platform MBean server will not take it.
+     */
+    public static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Stats(), new ObjectName(MBEAN_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // registered by an earlier Sunny in this JVM, it reads the same static metrics
+        } catch (JMException | SecurityException e) {
+            System.out.println("Sunny could not register its stats with JMX: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * This SaveEvent.java is the Flight Recorder event of one Storage.save, a whole snapshot written out.
+ */
+
+@Name("sunny.Save")
+@Label("Save")
+@Category("Sunny")
+@Description("A whole task file written by Storage.save")
+@StackTrace(false)
+public class SaveEvent extends jdk.jfr.Event {
+    @Label("File")
+    public String path;
+
+    @Label("Tasks")
+    public int taskCount;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+}
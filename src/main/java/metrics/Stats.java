@@ -0,0 +1,72 @@
+package metrics;
+
+/**
+ * This Stats.java exposes {@link Metrics} as a standard MBean, every read goes straight to the live histograms.
+ */
+
+public class Stats implements StatsMBean {
+    @Override
+    public long getCommandCount() {
+        return Metrics.COMMANDS.getCount();
+    }
+
+    @Override
+    public long getSaveCount() {
+        return Metrics.SAVES.getCount();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return Metrics.getBytesWritten();
+    }
+
+    @Override
+    public long getTasksLoaded() {
+        return Metrics.getTasksLoaded();
+    }
+
+    @Override
+    public double getCommandP50Micros() {
+        return Metrics.COMMANDS.getPercentile(0.50) / 1e3;
+    }
+
+    @Override
+    public double getCommandP99Micros() {
+        return Metrics.COMMANDS.getPercentile(0.99) / 1e3;
+    }
+
+    @Override
+    public double getCommandP999Micros() {
+        return Metrics.COMMANDS.getPercentile(0.999) / 1e3;
+    }
+
+    @Override
+    public double getCommandMaxMicros() {
+        return Metrics.COMMANDS.getMaxNanos() / 1e3;
+    }
+
+    @Override
+    public double getPersistP99Micros() {
+        return Metrics.PERSISTS.getPercentile(0.99) / 1e3;
+    }
+
+    @Override
+    public double getSaveP99Micros() {
+        return Metrics.SAVES.getPercentile(0.99) / 1e3;
+    }
+
+    @Override
+    public double getOutputP99Micros() {
+        return Metrics.OUTPUTS.getPercentile(0.99) / 1e3;
+    }
+
+    @Override
+    public String[] getLatencyReport() {
+        return Metrics.latencyReport();
+    }
+
+    @Override
+    public void reset() {
+        Metrics.reset();
+    }
+}
@@ -0,0 +1,35 @@
+package metrics;
+
+/**
+ * This StatsMBean.java is what jconsole shows of Sunny under sunny:type=Stats, see {@link Metrics}.
+ * Times are in microseconds.
+ */
+
+public interface StatsMBean {
+    long getCommandCount();
+
+    long getSaveCount();
+
+    long getBytesWritten();
+
+    long getTasksLoaded();
+
+    double getCommandP50Micros();
+
+    double getCommandP99Micros();
+
+    double getCommandP999Micros();
+
+    double getCommandMaxMicros();
+
+    double getPersistP99Micros();
+
+    double getSaveP99Micros();
+
+    double getOutputP99Micros();
+
+    // the same table the stats command prints, one line per histogram
+    String[] getLatencyReport();
+
+    void reset();
+}
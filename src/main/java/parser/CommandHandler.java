@@ -0,0 +1,11 @@
+package parser;
+
+/**
+ * This CommandHandler.java is one command Sunny understands.
+ * The lexer is handed over positioned right after the command keyword, so the handler reads its own arguments.
+ */
+
+@FunctionalInterface
+public interface CommandHandler {
+    void execute(CommandLexer lexer);
+}
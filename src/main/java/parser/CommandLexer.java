@@ -0,0 +1,117 @@
+package parser;
+
+/**
+ * This CommandLexer.java walks over a command line in a single pass without regex.
+ * A word is only described by its start and end offsets in the input, so reading words does not
+ * allocate; a String is only created when a handler actually asks for one.
+ */
+
+public class CommandLexer {
+    private String input = "";
+    private int position;
+    private int wordStart;
+    private int wordEnd;
+
+    public void reset(String input) {
+        this.input = input;
+        this.position = 0;
+        this.wordStart = 0;
+        this.wordEnd = 0;
+    }
+
+    public String getInput() {
+        return input;
+    }
+
+    /**
+     * Moves to the next word, skipping spaces and tabs.
+     *
+     * @return false if there are no words left
+     */
+    public boolean nextWord() {
+        int length = input.length();
+        while (position < length && isSpace(input.charAt(position))) {
+            position++;
+        }
+        if (position >= length) {
+            wordStart = wordEnd = length;
+            return false;
+        }
+        wordStart = position;
+        while (position < length && !isSpace(input.charAt(position))) {
+            position++;
+        }
+        wordEnd = position;
+        return true;
+    }
+
+    public int getWordStart() {
+        return wordStart;
+    }
+
+    public int getWordEnd() {
+        return wordEnd;
+    }
+
+    // the current word as a String
+    public String word() {
+        return input.substring(wordStart, wordEnd);
+    }
+
+    public boolean isWord(String expected) {
+        return wordEnd - wordStart == expected.length()
+                && input.regionMatches(true, wordStart, expected, 0, expected.length());
+    }
+
+    public boolean wordContains(char c) {
+        for (int i = wordStart; i < wordEnd; i++) {
+            if (input.charAt(i) == c) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the current word as a positive number, without going through Integer.parseInt.
+     *
+     * @return the number, or -1 if the word is not made of digits only or is too large
+     */
+    public int wordAsNumber() {
+        return readNumber(wordStart);
+    }
+
+    // true if the current word is a task id like "#12" rather than a position
+    public boolean isIdWord() {
+        return wordEnd > wordStart && input.charAt(wordStart) == '#';
+    }
+
+    // the number after the '#' of an id word, or -1 if the rest is not a number
+    public int wordAsId() {
+        return isIdWord() ? readNumber(wordStart + 1) : -1;
+    }
+
+    private int readNumber(int start) {
+        if (start == wordEnd || wordEnd - start > 9) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < wordEnd; i++) {
+            char c = input.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    // everything after the current word, trimmed; the empty string if nothing is left
+    public String remainder() {
+        return input.substring(position).trim();
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t';
+    }
+}
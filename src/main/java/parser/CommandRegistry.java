@@ -0,0 +1,74 @@
+package parser;
+
+/**
+ * This CommandRegistry.java maps command keywords to their handlers.
+ * It is a small open-addressing hash table that looks keywords up straight from a region of the
+ * input line, case-insensitively, so dispatch is O(1) and does not create a String per command.
+ */
+
+public class CommandRegistry {
+    private String[] keywords = new String[32];
+    private CommandHandler[] handlers = new CommandHandler[32];
+    private int size;
+
+    /**
+     * Registers a handler for a keyword, replacing any handler already registered for it.
+     *
+     * @param keyword the first word of the command, matched ignoring case
+     */
+    public void register(String keyword, CommandHandler handler) {
+        if ((size + 1) * 2 > keywords.length) {
+            grow();
+        }
+        int slot = findSlot(keyword, 0, keyword.length());
+        if (keywords[slot] == null) {
+            size++;
+        }
+        keywords[slot] = keyword;
+        handlers[slot] = handler;
+    }
+
+    /**
+     * Looks up the handler for input[start, end).
+     *
+     * @return the handler, or null if no command uses that keyword
+     */
+    public CommandHandler lookup(String input, int start, int end) {
+        return handlers[findSlot(input, start, end)];
+    }
+
+    // linear probing; the table is kept at most half full so an empty slot is always found
+    private int findSlot(String text, int start, int end) {
+        int mask = keywords.length - 1;
+        int slot = hash(text, start, end) & mask;
+        while (keywords[slot] != null && !matches(keywords[slot], text, start, end)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static boolean matches(String keyword, String text, int start, int end) {
+        return keyword.length() == end - start && keyword.regionMatches(true, 0, text, start, end - start);
+    }
+
+    private static int hash(String text, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + Character.toLowerCase(text.charAt(i));
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private void grow() {
+        String[] oldKeywords = keywords;
+        CommandHandler[] oldHandlers = handlers;
+        keywords = new String[oldKeywords.length * 2];
+        handlers = new CommandHandler[oldHandlers.length * 2];
+        size = 0;
+        for (int i = 0; i < oldKeywords.length; i++) {
+            if (oldKeywords[i] != null) {
+                register(oldKeywords[i], oldHandlers[i]);
+            }
+        }
+    }
+}
@@ -1,223 +1,667 @@
 package parser;
 
+import metrics.CommandEvent;
+import metrics.LatencyHistogram;
+import metrics.Metrics;
 import tasklist.*;
-import storage.Storage;
 import ui.Ui;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.*;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * This Parser.java is the parser which will take the user input,
  * to read and execute the necessary commands
+ * The first word of the input is looked up in a {@link CommandRegistry}, and the handler reads
+ * the rest of the line through a {@link CommandLexer}; new commands plug in with {@link #registerCommand}.
  * */
 
 public class Parser {
+    // tasks per page when list is given --page without --size
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final String LIST_USAGE = "list [--page <n> --size <k>] [--type T|D|E] [--done|--pending]";
+
     private final TaskList taskList;
     private final Ui ui;
-    private final Storage storage;
+    private final CommandRegistry registry = new CommandRegistry();
+    private final CommandLexer lexer = new CommandLexer();
+    // the command parseCommand is running, so its time can be recorded in the command's own histogram
+    private TimedCommand command;
+    // events added while the saved tasks were loading, checked for conflicts once they are in
+    private final List<Event> deferredConflictChecks = new ArrayList<>();
 
+    // changes are saved by whatever listens to the task list, see Storage.attach
     public Parser(TaskList taskList, Ui ui) {
         this.taskList = taskList;
         this.ui = ui;
-        this.storage = new Storage("data/sunny.txt");
+        registerDefaultCommands();
     }
 
-    public void parseCommand(String input) {
-        if (input.equalsIgnoreCase("list")) {
-            listTasks();
-        } else if (input.equalsIgnoreCase("help")) {
-            ui.displayAvailableCommands();
-        } else if (input.startsWith("mark")) {
-            updateTaskStatus(input, true);
-        } else if (input.startsWith("unmark")) {
-            updateTaskStatus(input, false);
-        } else if (input.startsWith("delete")) {
-            deleteTask(input);
-        } else if (input.startsWith("find")) {
-            findTask(input);
-        } else {
-            addTask(input);
-        }
+    private void registerDefaultCommands() {
+        registerCommand("list", this::listTasks);
+        registerCommand("help", lexer -> ui.displayAvailableCommands());
+        registerCommand("todo", this::addTodoTask);
+        registerCommand("deadline", this::addDeadlineTask);
+        registerCommand("event", this::addEventTask);
+        registerCommand("mark", lexer -> updateTaskStatus(lexer, true));
+        registerCommand("unmark", lexer -> updateTaskStatus(lexer, false));
+        registerCommand("delete", this::deleteTask);
+        registerCommand("find", this::findTask);
+        registerCommand("overdue", lexer -> listOverdueTasks());
+        registerCommand("due", this::findDueTasks);
+        registerCommand("events", this::findEventsDuring);
+        registerCommand("conflicts", this::findConflicts);
+        registerCommand("stats", lexer -> showStats());
+        registerCommand("undo", lexer -> undoChange());
+        registerCommand("redo", lexer -> redoChange());
     }
 
-    private void listTasks() {
-        if (taskList.getTasks().isEmpty()) {
-            ui.printMessage("Uh-oh, you don't have any tasks in your list yet. Add some tasks and get started!\uD83E\uDD14");
-            return;
+    // adds a command, or replaces the handler of an existing one; every run of it is timed in its own histogram
+    public void registerCommand(String keyword, CommandHandler handler) {
+        registry.register(keyword, new TimedCommand(handler, Metrics.commandHistogram(keyword)));
+    }
+
+    // a handler together with the histogram parseCommand records its runs in
+    private static class TimedCommand implements CommandHandler {
+        private final CommandHandler handler;
+        private final LatencyHistogram histogram;
+
+        TimedCommand(CommandHandler handler, LatencyHistogram histogram) {
+            this.handler = handler;
+            this.histogram = histogram;
         }
 
-        StringBuilder taskListString = new StringBuilder("Here's a list of your tasks, all set to go!\uD83D\uDCDD \n");
-        for (int i = 0; i < taskList.getTasks().size(); i++) {
-            taskListString.append(i + 1).append(". ").append(taskList.getTasks().get(i)).append("\n");
+        @Override
+        public void execute(CommandLexer lexer) {
+            handler.execute(lexer);
         }
-        ui.printMessage(taskListString.toString());
     }
 
-    private void addTask(String input) {
-        String[] taskParts = input.split(" ", 2);
-        String command = taskParts[0].toLowerCase();
+    // the commands that end a session, checked before anything is handed to parseCommand
+    public static boolean isExitCommand(String input) {
+        return input.equalsIgnoreCase("bye")||input.equalsIgnoreCase("exit")||input.equalsIgnoreCase("end")||input.equalsIgnoreCase("quit");
+    }
 
+    public void parseCommand(String input) {
+        long start = System.nanoTime();
+        CommandEvent event = new CommandEvent();
+        event.begin();
+        int errorCount = ui.getErrorCount();
+        CommandEvent.Outcome outcome = CommandEvent.Outcome.FAILED;
         try {
-            TaskType taskType = TaskType.valueOf(command.toUpperCase());
-            switch (taskType) {
-                case TODO:
-                    addTodoTask(taskParts);
-                    break;
-                case DEADLINE:
-                    addDeadlineTask(taskParts);
-                    break;
-                case EVENT:
-                    addEventTask(taskParts);
-                    break;
-                default:
-                    throw new IllegalArgumentException();
+            // the changes of the command are this parser's, so undo only takes back what its own user did
+            outcome = taskList.runAs(this, () -> dispatch(input));
+        } finally {
+            // one clock read for both histograms, reading the clock is not free on every machine
+            long elapsed = System.nanoTime() - start;
+            Metrics.COMMANDS.record(elapsed);
+            if (command != null) {
+                command.histogram.record(elapsed);
+                command = null;
             }
-        } catch (IllegalArgumentException e) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.command = firstWord(input);
+                event.outcome = (outcome == CommandEvent.Outcome.OK && ui.getErrorCount() != errorCount
+                        ? CommandEvent.Outcome.ERROR : outcome).getLabel();
+                event.commit();
+            }
+        }
+    }
+
+    // runs the command and returns how it ended, see CommandEvent
+    private CommandEvent.Outcome dispatch(String input) {
+        lexer.reset(input);
+        CommandHandler handler = lexer.nextWord()
+                ? registry.lookup(input, lexer.getWordStart(), lexer.getWordEnd())
+                : null;
+        if (handler instanceof TimedCommand) {
+            command = (TimedCommand) handler;
+        }
+        if (handler == null) {
             ui.displayErrorMessage("I didn’t quite catch that. Make sure to use a valid task type (e.g., todo, deadline, or event).");
+            return CommandEvent.Outcome.UNKNOWN;
+        }
+        if (taskList.isLoading() && !lexer.isWord("todo") && !lexer.isWord("deadline") && !lexer.isWord("event")
+                && !lexer.isWord("help")) {
+            // everything but adding needs the saved tasks, let the user know why the answer takes a moment
+            ui.printMessage("Still loading your saved tasks (" + taskList.getLoadProgress()
+                    + "%), this command runs as soon as they are in. ⏳");
+            ui.flush();
         }
-        saveTasks();
+        try {
+            handler.execute(lexer);
+        } catch (UncheckedIOException e) {
+            // the change was made but could not be journaled
+            ui.displayErrorMessage("Uh-oh, I wasn’t able to save your tasks. Please try again later. \uD83D\uDD04" + e.getMessage());
+            return CommandEvent.Outcome.NOT_SAVED;
+        }
+        return CommandEvent.Outcome.OK;
     }
 
-    private void addTodoTask(String[] taskParts) {
-        if (taskParts.length < 2 || taskParts[1].trim().isEmpty()) {
+    // the command keyword of the input in lower case, only made for a Flight Recorder event
+    private static String firstWord(String input) {
+        String trimmed = input.strip();
+        int end = 0;
+        while (end < trimmed.length() && !Character.isWhitespace(trimmed.charAt(end))) {
+            end++;
+        }
+        return trimmed.substring(0, end).toLowerCase();
+    }
+
+    // how many commands ran and how long they, saving and output took, since Sunny started
+    private void showStats() {
+        ui.printLine("Here's how Sunny has been doing since it started! \uD83D\uDCCA");
+        ui.printLine("Commands: " + Metrics.COMMANDS.getCount() + ", saves: " + Metrics.SAVES.getCount()
+                + ", bytes written: " + Metrics.getBytesWritten() + ", tasks loaded: " + Metrics.getTasksLoaded());
+        for (String line : Metrics.latencyReport()) {
+            ui.printLine(line);
+        }
+        ui.endMessage();
+    }
+
+    /**
+     * list [--page n --size k] [--type T|D|E] [--done|--pending]
+     * Without options every task is listed. The filters are answered by the task list's bitsets, and only
+     * the rows of the requested page are rendered and written, one line at a time.
+     */
+    private void listTasks(CommandLexer lexer) {
+        int page = 0;
+        int pageSize = 0;
+        String type = null;
+        Boolean isDone = null;
+        while (lexer.nextWord()) {
+            if (lexer.isWord("--page") || lexer.isWord("--size")) {
+                boolean isPage = lexer.isWord("--page");
+                int number = lexer.nextWord() ? lexer.wordAsNumber() : -1;
+                if (number < 1) {
+                    ui.displayErrorMessage("The page and its size have to be positive numbers, e.g. list --page 2 --size 10. \uD83D\uDD22");
+                    return;
+                }
+                if (isPage) {
+                    page = number;
+                } else {
+                    pageSize = number;
+                }
+            } else if (lexer.isWord("--type")) {
+                String word = lexer.nextWord() ? lexer.word().toUpperCase() : "";
+                if (!word.equals("T") && !word.equals("D") && !word.equals("E")) {
+                    ui.displayErrorMessage("The type has to be T (todo), D (deadline) or E (event). \uD83E\uDD14");
+                    return;
+                }
+                type = word;
+            } else if (lexer.isWord("--done") || lexer.isWord("--pending")) {
+                isDone = lexer.isWord("--done");
+            } else {
+                ui.displayErrorMessage("I don't know the list option '" + lexer.word() + "'. Try " + LIST_USAGE + ". \uD83E\uDD14");
+                return;
+            }
+        }
+
+        if (taskList.size() == 0) {
+            ui.printMessage("Uh-oh, you don't have any tasks in your list yet. Add some tasks and get started!\uD83E\uDD14");
+            return;
+        }
+        boolean isPaged = page > 0 || pageSize > 0;
+        boolean isFiltered = type != null || isDone != null;
+        page = Math.max(page, 1);
+        pageSize = isPaged ? (pageSize > 0 ? pageSize : DEFAULT_PAGE_SIZE) : Integer.MAX_VALUE;
+        int offset = (int) Math.min(Integer.MAX_VALUE, (long) (page - 1) * pageSize);
+        // one consistent page even while other clients change the list
+        TaskPage taskPage = taskList.getTaskPage(type, isDone, offset, pageSize);
+
+        int matchCount = taskPage.getMatchCount();
+        if (matchCount == 0) {
+            ui.printMessage("No tasks match that filter. Try " + LIST_USAGE + " with other options. \uD83E\uDD14");
+            return;
+        }
+        int pageCount = (int) ((matchCount + (long) pageSize - 1) / pageSize);
+        if (page > pageCount) {
+            ui.printMessage("There is no page " + page + ", the last one is page " + pageCount + ". \uD83D\uDCC4");
+            return;
+        }
+
+        String taskCount = matchCount + (isFiltered ? " matching" : "") + (matchCount == 1 ? " task" : " tasks");
+        if (isPaged) {
+            ui.printLine("Here's page " + page + " of " + pageCount + " of your " + taskCount + "! \uD83D\uDCDD");
+        } else if (isFiltered) {
+            ui.printLine("Found " + taskCount + " in your list! \uD83D\uDCDD");
+        } else {
+            ui.printLine("Here's a list of your tasks, all set to go!\uD83D\uDCDD ");
+        }
+        List<Task> tasks = taskPage.getTasks();
+        StringBuilder row = new StringBuilder(128);
+        for (int i = 0; i < tasks.size(); i++) {
+            row.setLength(0);
+            appendTaskRow(row, taskPage.getPosition(i) + 1, tasks.get(i));
+            ui.printLine(row);
+        }
+        ui.printLine("");
+        ui.endMessage();
+    }
+
+    private void addTodoTask(CommandLexer lexer) {
+        String description = lexer.remainder();
+        if (description.isEmpty()) {
             ui.displayErrorMessage("Hey, you need to give a description for your todo task. Can’t leave that blank! \uD83D\uDE05");
             return;
         }
-        Todo todo = new Todo(taskParts[1].trim());
-        boolean isAdded = taskList.addTask(todo);
-        if (isAdded) {
-            ui.displaySuccessMessage("added a new Todo: ✅\n Todo Task: " + todo + "\n" + ui.displayTaskCount(taskList.getTasks().size()));
+        Task todo = taskList.addTask(new Todo(description));
+        if (todo != null) {
+            ui.displaySuccessMessage("added a new Todo: ✅\n Todo Task: " + todo + "\n" + taskCountAfterAdding(todo));
+        } else {
+            ui.displayErrorMessage("This task is already in your task list. Task not added. ❌");
         }
     }
 
-    private void addDeadlineTask(String[] taskParts) {
-        if (taskParts.length < 2 || taskParts[1].trim().isEmpty()) {
+    private void addDeadlineTask(CommandLexer lexer) {
+        String arguments = lexer.remainder();
+        if (arguments.isEmpty()) {
             ui.displayErrorMessage("Oops, you didn’t give a description for your deadline task. Please provide one.");
             return;
         }
 
-        String[] deadlineParts = taskParts[1].split("/by", 2);
-        if (deadlineParts.length < 2 || deadlineParts[1].trim().isEmpty()) {
+        int byIndex = arguments.indexOf("/by");
+        String dateTimeString = byIndex < 0 ? "" : arguments.substring(byIndex + "/by".length()).trim();
+        if (dateTimeString.isEmpty()) {
             ui.displayErrorMessage("Looks like you forgot to mention the due date! Try something like '/by 2024-12-01 15:00'.");
             return;
         }
 
-        String description = deadlineParts[0].trim();
-        String dateTimeString = deadlineParts[1].trim();
+        String description = arguments.substring(0, byIndex).trim();
+        if (description.isEmpty()) {
+            ui.displayErrorMessage("Oops, you didn’t give a description for your deadline task. Please provide one.");
+            return;
+        }
 
         try {
-            // define the expected date-time format
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
-            LocalDateTime deadlineDateTime = LocalDateTime.parse(dateTimeString, formatter);
-            Deadline deadline = new Deadline(description, deadlineDateTime);
-            boolean isAdded = taskList.addTask(deadline);
-            if (isAdded) {
-                ui.displaySuccessMessage("added a new Deadline: ✅\n Deadline Task: " + deadline + "\n" + ui.displayTaskCount(taskList.getTasks().size()));
+            LocalDateTime deadlineDateTime = TaskCodec.parseDateTime(dateTimeString);
+            Task deadline = taskList.addTask(new Deadline(description, deadlineDateTime));
+            if (deadline != null) {
+                ui.displaySuccessMessage("added a new Deadline: ✅\n Deadline Task: " + deadline + "\n" + taskCountAfterAdding(deadline));
+            } else {
+                ui.displayErrorMessage("This task is already in your task list. Task not added. ❌");
             }
         } catch (DateTimeParseException e) {
             ui.displayErrorMessage("Invalid date and time format! \uD83D\uDCC5 \uD83D\uDD70\uFE0F Please use 'yyyy-MM-dd HH:mm', e.g., '/by 2024-12-01 15:00'.");
         }
     }
 
-    private void addEventTask(String[] taskParts) {
-        if (taskParts.length < 2 || taskParts[1].trim().isEmpty()) {
+    private void addEventTask(CommandLexer lexer) {
+        String arguments = lexer.remainder();
+        if (arguments.isEmpty()) {
             ui.displayErrorMessage("Hmm... it looks like you missed the description for your event. Please provide one.");
             return;
         }
 
-        String input = taskParts[1];
-        String[] eventParts = input.split("/from|/to", 3);
-        if (eventParts.length < 3 || eventParts[1].trim().isEmpty() || eventParts[2].trim().isEmpty()) {
+        // the description runs up to the first /from or /to, the start up to the next one, the end is the rest
+        int firstMarker = indexOfTimeMarker(arguments, 0);
+        int startBegin = firstMarker < 0 ? -1 : firstMarker + markerLength(arguments, firstMarker);
+        int secondMarker = startBegin < 0 ? -1 : indexOfTimeMarker(arguments, startBegin);
+        String start = secondMarker < 0 ? "" : arguments.substring(startBegin, secondMarker).trim();
+        String end = secondMarker < 0 ? "" : arguments.substring(secondMarker + markerLength(arguments, secondMarker)).trim();
+        if (start.isEmpty() || end.isEmpty()) {
             ui.displayErrorMessage("Don’t forget to provide both the start and end times! Try something like `/from Mon 2pm /to 4pm`.");
             return;
         }
 
-        Event event = new Event(eventParts[0].trim(), eventParts[1].trim(), eventParts[2].trim());
-        boolean isAdded = taskList.addTask(event);
-        if (isAdded) {
-            ui.displaySuccessMessage("added an Event: ✅\n Event Task: " + event + "\n" + ui.displayTaskCount(taskList.getTasks().size()));
+        String description = arguments.substring(0, firstMarker).trim();
+        if (description.isEmpty()) {
+            ui.displayErrorMessage("Hmm... it looks like you missed the description for your event. Please provide one.");
+            return;
+        }
+
+        Event event = (Event) taskList.addTask(new Event(description, start, end));
+        if (event != null) {
+            ui.displaySuccessMessage("added an Event: ✅\n Event Task: " + event + "\n" + taskCountAfterAdding(event));
+            if (event.getId() == 0) {
+                // the conflicts can only be found among the saved events, which would mean waiting for the load
+                deferredConflictChecks.add(event);
+                return;
+            }
+            List<Event> conflicts = taskList.getConflictingEvents(event);
+            if (!conflicts.isEmpty()) {
+                printTasks("Heads up! This event overlaps with: ⚠\uFE0F", conflicts);
+            }
+        } else {
+            ui.displayErrorMessage("This task is already in your task list. Task not added. ❌");
         }
     }
 
-    private void updateTaskStatus(String input, boolean markAsDone) {
-        String[] parts = input.split(" ");
-        if (parts.length < 2) {
-            ui.displayErrorMessage("Hmm, I think you forgot to mention which task to mark. Try again with a valid task number. \uD83D\uDD22");
+    /**
+     * Reports the conflicts of the events added while the saved tasks were loading, once they are loaded.
+     * Events that turned out to be saved already are left out, the caller reports those.
+     *
+     * @param droppedDuplicates the queued tasks that were not added, see TaskList#takeDroppedDuplicates
+     */
+    public void reportDeferredConflicts(List<Task> droppedDuplicates) {
+        if (deferredConflictChecks.isEmpty() || taskList.isLoading()) {
             return;
         }
+        for (Event event : deferredConflictChecks) {
+            // the queued event itself is what was dropped, an equal saved event is still in the list
+            boolean isDropped = droppedDuplicates.stream().anyMatch(task -> task == event);
+            List<Event> conflicts = isDropped ? List.of() : taskList.getConflictingEvents(event);
+            if (!conflicts.isEmpty()) {
+                printTasks("Heads up! The event you added while loading overlaps with saved ones: ⚠\uFE0F\n Event Task: "
+                        + event, conflicts);
+            }
+        }
+        deferredConflictChecks.clear();
+    }
+
+    // a task gets its id once it is really in the list, until then it waits for the saved tasks to finish loading
+    private String taskCountAfterAdding(Task task) {
+        if (task.getId() == 0) {
+            return "Your saved tasks are still loading, it joins them as soon as they are in. ⏳";
+        }
+        return ui.displayTaskCount(taskList.size());
+    }
+
+    // the position of the next "/from" or "/to", whichever comes first
+    private static int indexOfTimeMarker(String text, int from) {
+        int fromIndex = text.indexOf("/from", from);
+        int toIndex = text.indexOf("/to", from);
+        if (fromIndex < 0) {
+            return toIndex;
+        }
+        return toIndex < 0 ? fromIndex : Math.min(fromIndex, toIndex);
+    }
+
+    private static int markerLength(String text, int markerIndex) {
+        return text.startsWith("/from", markerIndex) ? "/from".length() : "/to".length();
+    }
+
+    // reads the task number after the command, returns its index or -1 if there is no valid task with that number
+    // or the word is an id
+    private int readTaskIndex(CommandLexer lexer) {
+        int taskNumber = lexer.wordAsNumber();
+        if (taskNumber < 1 || taskNumber > taskList.size()) {
+            return -1;
+        }
+        return taskNumber - 1;
+    }
 
+    // the task with the number or #id after the command, or null if there is none
+    private Task readTask(CommandLexer lexer) {
+        if (lexer.isIdWord()) {
+            int id = lexer.wordAsId();
+            return id > 0 ? taskList.getTaskById(id) : null;
+        }
+        int taskIndex = readTaskIndex(lexer);
         try {
-            int taskIndex = Integer.parseInt(parts[1]) - 1;
-            Task task = taskList.getTasks().get(taskIndex);
-            if (markAsDone) {
-                if (task.isDone()) {
-                    ui.displayErrorMessage("This task is already done! You’ve crossed it off already! ✨\n Task: " + task);
-                } else {
-                    task.markAsDone();
-                    ui.displaySuccessMessage("marked this task as done  ✅\n Task: " + task);
-                }
+            return taskIndex < 0 ? null : taskList.getTask(taskIndex);
+        } catch (IndexOutOfBoundsException e) {
+            // another client shortened the list in the meantime
+            return null;
+        }
+    }
+
+    private void updateTaskStatus(CommandLexer lexer, boolean markAsDone) {
+        if (!lexer.nextWord()) {
+            ui.displayErrorMessage("Hmm, I think you forgot to mention which task to mark. Try again with a valid task number. \uD83D\uDD22");
+            return;
+        }
+
+        Task task = readTask(lexer);
+        if (task == null) {
+            ui.displayErrorMessage("Oops, something went wrong. Please check the task number and try again! \uD83D\uDD04");
+            return;
+        }
+
+        // the check and the change happen together in the task list, so two clients cannot both mark the same task
+        Task updatedTask = taskList.updateTaskStatus(task, markAsDone);
+        if (markAsDone) {
+            if (updatedTask == null) {
+                ui.displayErrorMessage("This task is already done! You’ve crossed it off already! ✨\n Task: " + task);
             } else {
-                if (!task.isDone()) {
-                    ui.displayErrorMessage("This task is already marked as not done. Keep going! 💪\n Task: " + task);
-                } else {
-                    task.markAsNotDone();
-                    ui.displaySuccessMessage("task marked as not done, let's complete it soon! 💪\n Task: " + task);
-                }
+                ui.displaySuccessMessage("marked this task as done  ✅\n Task: " + updatedTask);
+            }
+        } else {
+            if (updatedTask == null) {
+                ui.displayErrorMessage("This task is already marked as not done. Keep going! 💪\n Task: " + task);
+            } else {
+                ui.displaySuccessMessage("task marked as not done, let's complete it soon! 💪\n Task: " + updatedTask);
             }
-            saveTasks();
-        } catch (Exception e) {
-            ui.displayErrorMessage("Oops, something went wrong. Please check the task number and try again! \uD83D\uDD04");
         }
     }
 
-    private void deleteTask(String input) {
-        String[] parts = input.split(" ");
-        if (parts.length < 2) {
+    private void deleteTask(CommandLexer lexer) {
+        if (!lexer.nextWord()) {
             ui.displayErrorMessage("Hey! You need to specify the task number you want to delete. I can’t do it without that! \uD83D\uDE31");
             return;
         }
 
+        Task removedTask;
         try {
-            int taskIndex = Integer.parseInt(parts[1]) - 1;
-            Task removedTask = taskList.removeTask(taskIndex);
-            ui.displaySuccessMessage("removed task: ❌\n Task: " + removedTask);
-        } catch (Exception e) {
+            if (lexer.isIdWord()) {
+                // an id still names the same task after earlier deletes, so scripts can delete many tasks safely
+                int id = lexer.wordAsId();
+                removedTask = id > 0 ? taskList.removeTaskById(id) : null;
+            } else {
+                int taskIndex = readTaskIndex(lexer);
+                removedTask = taskIndex < 0 ? null : taskList.removeTask(taskIndex);
+            }
+        } catch (IndexOutOfBoundsException e) {
+            // another client shortened the list in the meantime
+            removedTask = null;
+        }
+        if (removedTask == null) {
             ui.displayErrorMessage("Oops, I couldn’t find that task. Make sure you gave the correct task number. ❗");
+            return;
         }
-        saveTasks();
+        ui.displaySuccessMessage("removed task: ❌\n Task: " + removedTask);
     }
 
-    private void findTask(String input) {
-        String[] parts = input.split(" ", 2); // Split only once
-        if (parts.length < 2 || parts[1].trim().isEmpty()) {
-            ui.displayErrorMessage("Hey! You need to provide a keyword to search for tasks. 🔍");
+    // takes back the latest add, delete, mark or unmark made through this parser
+    private void undoChange() {
+        if (!taskList.supportsUndo()) {
+            ui.displayErrorMessage("Sorry, undo is not available when the task file is memory-mapped. ❗");
+            return;
+        }
+        TaskChange change = taskList.undo();
+        if (change == null) {
+            ui.displayErrorMessage("There's nothing to undo, your list is as far back as I remember! ⏪");
             return;
         }
+        switch (change.getKind()) {
+            case ADDED:
+                ui.displaySuccessMessage("undid adding this task: ⏪\n Task: " + change.getNewTask());
+                break;
+            case REMOVED:
+                ui.displaySuccessMessage("brought this task back: ⏪\n Task: " + change.getOldTask());
+                break;
+            default:
+                ui.displaySuccessMessage("put this task back the way it was: ⏪\n Task: " + change.getOldTask());
+                break;
+        }
+    }
 
-        String keyword = parts[1].trim();
-        ArrayList<Task> matchingTasks = new ArrayList<>();
-        for (Task task : taskList.getTasks()) {
-            if (task.getDescription().toLowerCase().contains(keyword.toLowerCase())) {
-                matchingTasks.add(task);
-            }
+    // makes the latest undone change again
+    private void redoChange() {
+        if (!taskList.supportsUndo()) {
+            ui.displayErrorMessage("Sorry, redo is not available when the task file is memory-mapped. ❗");
+            return;
         }
+        TaskChange change = taskList.redo();
+        if (change == null) {
+            ui.displayErrorMessage("There's nothing to redo, undo something first! ⏩");
+            return;
+        }
+        switch (change.getKind()) {
+            case ADDED:
+                ui.displaySuccessMessage("added this task again: ⏩\n Task: " + change.getNewTask());
+                break;
+            case REMOVED:
+                ui.displaySuccessMessage("removed this task again: ⏩\n Task: " + change.getOldTask());
+                break;
+            default:
+                ui.displaySuccessMessage("changed this task again: ⏩\n Task: " + change.getNewTask());
+                break;
+        }
+    }
+
+    private void findTask(CommandLexer lexer) {
+        String keyword = lexer.remainder();
+        if (keyword.isEmpty()) {
+            ui.displayErrorMessage("Hey! You need to provide a keyword to search for tasks. 🔍");
+            return;
+        }
+
+        ArrayList<Task> matchingTasks = taskList.searchTasks(keyword);
 
         if (matchingTasks.isEmpty()) {
             ui.printMessage("No matching tasks found for: \"" + keyword + "\" 😞");
-        } else {
-            ui.printMessage("Here are the matching tasks in your list: \uD83D\uDD0D");
-            for (int i = 0; i < matchingTasks.size(); i++) {
-                ui.printMessage((i + 1) + ". " + matchingTasks.get(i));
+            return;
+        }
+        // all the matches in one message, like list, instead of a framed message per task
+        ui.printLine("Here are the matching tasks in your list: \uD83D\uDD0D");
+        StringBuilder row = new StringBuilder(128);
+        for (int i = 0; i < matchingTasks.size(); i++) {
+            row.setLength(0);
+            appendTaskRow(row, i + 1, matchingTasks.get(i));
+            ui.printLine(row);
+        }
+        ui.printLine("");
+        ui.endMessage();
+    }
+
+    // due before <date> or due between <date> <date>, dates as yyyy-MM-dd with an optional HH:mm
+    private void findDueTasks(CommandLexer lexer) {
+        boolean hasKind = lexer.nextWord();
+        if (!hasKind || lexer.remainder().isEmpty()) {
+            ui.displayErrorMessage("Tell me which dates to check! Try 'due before 2024-12-01' or 'due between 2024-12-01 2024-12-07'. \uD83D\uDCC5");
+            return;
+        }
+
+        try {
+            if (lexer.isWord("before")) {
+                String dateText = lexer.remainder();
+                printDeadlines("Here are the tasks due before " + dateText + ": \uD83D\uDCC5",
+                        taskList.getTasksDueBefore(parseDateArgument(dateText, false)));
+            } else if (lexer.isWord("between")) {
+                String[] range = splitDateRange(lexer);
+                if (range == null) {
+                    ui.displayErrorMessage("I need two dates for that! Try 'due between 2024-12-01 2024-12-07'. \uD83D\uDCC5");
+                    return;
+                }
+                printDeadlines("Here are the tasks due between " + range[0] + " and " + range[1] + ": \uD83D\uDCC5",
+                        taskList.getTasksDueBetween(parseDateArgument(range[0], false), parseDateArgument(range[1], true)));
+            } else {
+                ui.displayErrorMessage("I only know 'due before <date>' and 'due between <date> <date>'. \uD83D\uDCC5");
             }
+        } catch (DateTimeParseException e) {
+            ui.displayErrorMessage("Invalid date and time format! \uD83D\uDCC5 \uD83D\uDD70\uFE0F Please use 'yyyy-MM-dd' or 'yyyy-MM-dd HH:mm', e.g., '2024-12-01 15:00'.");
         }
     }
 
-    private void saveTasks() {
+    // events during <date> <date>, lists the events with parsed times that overlap the range
+    private void findEventsDuring(CommandLexer lexer) {
+        String[] range = lexer.nextWord() && lexer.isWord("during") ? splitDateRange(lexer) : null;
+        if (range == null) {
+            ui.displayErrorMessage("Tell me which dates to check! Try 'events during 2024-12-01 2024-12-07'. \uD83D\uDCC5");
+            return;
+        }
+
         try {
-            storage.save("data/sunny.txt", taskList.getTasks());
-        } catch (Exception e) {
-            ui.displayErrorMessage("Uh-oh, I wasn’t able to save your tasks. Please try again later. \uD83D\uDD04" + e.getMessage());
+            List<Event> events = taskList.getEventsDuring(parseDateArgument(range[0], false), parseDateArgument(range[1], true));
+            if (events.isEmpty()) {
+                ui.printMessage("No events found there. Your calendar is free! \uD83D\uDE0C");
+            } else {
+                printTasks("Here are the events between " + range[0] + " and " + range[1] + ": \uD83D\uDCC5", events);
+            }
+        } catch (DateTimeParseException e) {
+            ui.displayErrorMessage("Invalid date and time format! \uD83D\uDCC5 \uD83D\uDD70\uFE0F Please use 'yyyy-MM-dd' or 'yyyy-MM-dd HH:mm', e.g., '2024-12-01 15:00'.");
+        }
+    }
+
+    // conflicts <taskNumber>, lists the events that overlap the given event
+    private void findConflicts(CommandLexer lexer) {
+        if (!lexer.nextWord()) {
+            ui.displayErrorMessage("Which event should I check? Try 'conflicts 3'. \uD83D\uDD22");
+            return;
+        }
+
+        Task task = readTask(lexer);
+        if (task == null) {
+            ui.displayErrorMessage("Oops, I couldn’t find that task. Make sure you gave the correct task number. ❗");
+            return;
+        }
+        if (!(task instanceof Event) || !((Event) task).hasTimeBounds()) {
+            ui.displayErrorMessage("I can only check events with times like '2024-12-01 14:00'. \uD83D\uDD70\uFE0F\n Task: " + task);
+            return;
+        }
+        List<Event> conflicts = taskList.getConflictingEvents((Event) task);
+        if (conflicts.isEmpty()) {
+            ui.printMessage("No conflicts for this event, you're all clear! \uD83D\uDE0C");
+        } else {
+            printTasks("This event overlaps with: ⚠\uFE0F", conflicts);
+        }
+    }
+
+    // splits the rest of the line "<date> [time] <date> [time]" into its two dates, or returns null if there is only one
+    private static String[] splitDateRange(CommandLexer lexer) {
+        if (!lexer.nextWord()) {
+            return null;
+        }
+        StringBuilder firstDate = new StringBuilder(lexer.word());
+        // the second date starts at the second word that looks like a date
+        while (lexer.nextWord()) {
+            if (lexer.wordContains('-')) {
+                StringBuilder secondDate = new StringBuilder(lexer.word());
+                while (lexer.nextWord()) {
+                    secondDate.append(' ').append(lexer.word());
+                }
+                return new String[] { firstDate.toString(), secondDate.toString() };
+            }
+            firstDate.append(' ').append(lexer.word());
+        }
+        return null;
+    }
+
+    private void listOverdueTasks() {
+        printDeadlines("These tasks are overdue, let's get them done! ⏰", taskList.getOverdueTasks());
+    }
+
+    /**
+     * Reads a date argument. A bare date means the start of that day, or the end of it when it closes a range;
+     * a date with a time closing a range includes that minute.
+     */
+    private LocalDateTime parseDateArgument(String text, boolean isEndOfRange) {
+        String trimmed = text.trim();
+        if (trimmed.length() <= "yyyy-MM-dd".length()) {
+            LocalDate date = TaskCodec.parseDate(trimmed);
+            return isEndOfRange ? date.plusDays(1).atStartOfDay() : date.atStartOfDay();
+        }
+        LocalDateTime time = TaskCodec.parseDateTime(trimmed);
+        return isEndOfRange ? time.plusMinutes(1) : time;
+    }
+
+    private void printDeadlines(String header, List<Deadline> deadlines) {
+        if (deadlines.isEmpty()) {
+            ui.printMessage("No deadlines found there. Enjoy the free time! \uD83D\uDE0C");
+            return;
+        }
+        printTasks(header, deadlines);
+    }
+
+    // one row of a listing, with the id of the task, which keeps working after other tasks are deleted
+    private static String taskRow(int number, Task task) {
+        return appendTaskRow(new StringBuilder(64), number, task).toString();
+    }
+
+    private static StringBuilder appendTaskRow(StringBuilder row, int number, Task task) {
+        return row.append(number).append(". ").append(task).append(" (#").append(task.getId()).append(')');
+    }
+
+    private void printTasks(String header, List<? extends Task> tasks) {
+        StringBuilder message = new StringBuilder(header).append("\n");
+        for (int i = 0; i < tasks.size(); i++) {
+            message.append(taskRow(i + 1, tasks.get(i))).append("\n");
         }
+        ui.printMessage(message.toString());
     }
 }
@@ -0,0 +1,155 @@
+package storage;
+
+import tasklist.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This BinaryTaskFormat.java is a compact, versioned binary form of the task file.
+ * Unlike the text format it needs no regex or date parsing to load, and descriptions containing
+ * " (by: " or " to: " survive a round trip.
+ *
+ * Layout (all numbers big-endian):
+ *   header: magic "SUNY" (4 bytes), version (2 bytes), task count (4 bytes)
+ *   record: type byte ('T', 'D' or 'E'), done flag byte, task id (4 bytes, since version 2), then
+ *           T: description
+ *           D: description, deadline in epoch minutes (8 bytes)
+ *           E: description, start, end
+ *   every string is a 4 byte length followed by that many UTF-8 bytes
+ * Version 1 files, written before tasks had ids, are still read; their tasks get ids when they are loaded.
+ */
+
+public class BinaryTaskFormat {
+    public static final int MAGIC = 0x53554E59; // "SUNY"
+    public static final short VERSION = 2;
+    private static final short VERSION_WITHOUT_IDS = 1;
+
+    private static final int HEADER_BYTES = 10;
+    // type, done flag and the length of an empty description, plus the id since version 2
+    private static final int MIN_RECORD_BYTES = 6;
+
+    private static final byte TODO = 'T';
+    private static final byte DEADLINE = 'D';
+    private static final byte EVENT = 'E';
+
+    // checks the first bytes of the file for the magic number
+    public static boolean isBinaryFile(File file) {
+        if (!file.exists() || file.length() < 4) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public static void write(OutputStream out, List<Task> tasks) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        data.writeInt(tasks.size());
+        for (Task task : tasks) {
+            writeTask(data, task);
+        }
+        data.flush();
+    }
+
+    /**
+     * Reads a task file in the binary format.
+     * The task count and string lengths are checked against the size of the file before anything is allocated
+     * for them, so a corrupted file fails with an IOException instead of running out of memory.
+     *
+     * @param in the content of the file
+     * @param byteCount the size of the file in bytes
+     */
+    public static ArrayList<Task> read(InputStream in, long byteCount) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("This is not a Sunny binary task file. ❌");
+        }
+        short version = data.readShort();
+        if (version != VERSION && version != VERSION_WITHOUT_IDS) {
+            throw new IOException("Unsupported binary task file version: " + version + " ❌");
+        }
+        boolean hasIds = version != VERSION_WITHOUT_IDS;
+        int count = data.readInt();
+        if (count < 0 || (long) count * (MIN_RECORD_BYTES + (hasIds ? 4 : 0)) > byteCount - HEADER_BYTES) {
+            throw new IOException("Corrupted task count in binary task file: " + count + " ❌");
+        }
+        ArrayList<Task> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tasks.add(readTask(data, hasIds, byteCount));
+        }
+        return tasks;
+    }
+
+    private static void writeTask(DataOutputStream data, Task task) throws IOException {
+        if (task instanceof Deadline) {
+            data.writeByte(DEADLINE);
+            data.writeByte(task.isDone() ? 1 : 0);
+            data.writeInt(task.getId());
+            writeString(data, task.getDescription());
+            data.writeLong(toEpochMinute(((Deadline) task).getDeadlineDate()));
+        } else if (task instanceof Event) {
+            Event event = (Event) task;
+            data.writeByte(EVENT);
+            data.writeByte(task.isDone() ? 1 : 0);
+            data.writeInt(task.getId());
+            writeString(data, task.getDescription());
+            writeString(data, event.getEventStart());
+            writeString(data, event.getEventEnd());
+        } else {
+            data.writeByte(TODO);
+            data.writeByte(task.isDone() ? 1 : 0);
+            data.writeInt(task.getId());
+            writeString(data, task.getDescription());
+        }
+    }
+
+    private static Task readTask(DataInputStream data, boolean hasIds, long byteCount) throws IOException {
+        byte type = data.readByte();
+        boolean isDone = data.readByte() != 0;
+        int id = hasIds ? data.readInt() : 0;
+        String description = readString(data, byteCount);
+        switch (type) {
+            case TODO:
+                return new Todo(description, id, isDone);
+            case DEADLINE:
+                return new Deadline(description, fromEpochMinute(data.readLong()), id, isDone);
+            case EVENT:
+                return new Event(description, readString(data, byteCount), readString(data, byteCount), id, isDone);
+            default:
+                throw new IOException("Unknown task type in binary task file: " + type + " ❌");
+        }
+    }
+
+    private static void writeString(DataOutputStream data, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        data.writeInt(bytes.length);
+        data.write(bytes);
+    }
+
+    private static String readString(DataInputStream data, long byteCount) throws IOException {
+        int length = data.readInt();
+        if (length < 0 || length > byteCount) {
+            throw new IOException("Corrupted string length in binary task file. ❌");
+        }
+        byte[] bytes = new byte[length];
+        data.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // deadlines have minute precision, so they are stored as minutes since 1970-01-01T00:00
+    static long toEpochMinute(LocalDateTime dateTime) {
+        return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    static LocalDateTime fromEpochMinute(long epochMinute) {
+        return LocalDateTime.ofEpochSecond(epochMinute * 60, 0, ZoneOffset.UTC);
+    }
+}
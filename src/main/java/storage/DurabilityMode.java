@@ -0,0 +1,43 @@
+package storage;
+
+/**
+ * This DurabilityMode.java lists how hard the {@link PersistenceWriter} tries to get a record onto the disk
+ * before a command is allowed to carry on.
+ * The mode can be picked when starting Sunny with -Dsunny.durability=every-command|batched|os-flush
+ */
+
+public enum DurabilityMode {
+    // every command waits until its record has been written and fsynced
+    EVERY_COMMAND,
+    // commands return at once, each merged batch of records is fsynced by the background writer
+    BATCHED,
+    // commands return at once, batches are handed to the OS without fsync
+    OS_FLUSH;
+
+    public static final String PROPERTY = "sunny.durability";
+
+    /**
+     * Reads the durability mode from the sunny.durability system property, falling back to BATCHED.
+     * An unknown value is reported instead of silently falling back, so a typo does not go unnoticed.
+     *
+     * @return the selected durability mode
+     */
+    public static DurabilityMode fromSystemProperty() {
+        String value = System.getProperty(PROPERTY);
+        if (value == null) {
+            return BATCHED;
+        }
+        switch (value.trim().toLowerCase()) {
+            case "every-command":
+                return EVERY_COMMAND;
+            case "os-flush":
+                return OS_FLUSH;
+            case "batched":
+                return BATCHED;
+            default:
+                System.out.println("Sunny does not know -D" + PROPERTY + "=" + value
+                        + ", use every-command, batched or os-flush. Going on with batched. ❗");
+                return BATCHED;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package storage;
+
+import metrics.Metrics;
+import tasklist.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * This InPlaceTaskFile.java patches the text task file directly instead of rewriting it.
+ * It keeps the byte offset where every line starts, so
+ *   mark / unmark  write the one byte between the brackets of [X], e.g. offset 4 of "[T][X] ..."
+ *                  (after the "#id " prefix when the line has one)
+ *   add            writes only the new line at the end of the file
+ *   delete         moves the bytes after the deleted line up over it and truncates the file,
+ *                  so only the lines from the deleted one onward are rewritten
+ *   undo a delete  moves the bytes from the old line onward down and writes the line back into the gap
+ * The lines are in the default charset, the same as the snapshots Storage writes.
+ * A crash in the middle of a delete can leave the tail of the file half moved, which the journal never does,
+ * so this is only used when Sunny is started with -Dsunny.writes=in-place.
+ */
+
+public class InPlaceTaskFile {
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    // "[T][" comes before the done mark
+    private static final int DONE_MARK_OFFSET = 4;
+
+    private final FileChannel channel;
+    private final DurabilityMode durabilityMode;
+    private final Charset charset = Charset.defaultCharset();
+    private final TaskCodec codec = new TaskCodec();
+    private final ByteBuffer copyBuffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+
+    // lineStarts[i] is the offset of line i, fileEnd is where the next line goes
+    private long[] lineStarts = new long[1024];
+    private int count;
+    private long fileEnd;
+
+    private InPlaceTaskFile(FileChannel channel, DurabilityMode durabilityMode) {
+        this.channel = channel;
+        this.durabilityMode = durabilityMode;
+    }
+
+    /**
+     * Opens the task file, creating it if needed, and indexes where each of its lines starts.
+     * A last line without a newline gets one, so new lines can always be written at the end.
+     */
+    public static InPlaceTaskFile open(File file, DurabilityMode durabilityMode) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        InPlaceTaskFile taskFile = new InPlaceTaskFile(channel, durabilityMode);
+        try {
+            taskFile.index();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return taskFile;
+    }
+
+    private void index() throws IOException {
+        long size = channel.size();
+        ByteBuffer buffer = copyBuffer;
+        byte[] bytes = buffer.array();
+        long position = 0;
+        boolean isLineStart = true;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (isLineStart) {
+                    addLineStart(position + i);
+                }
+                isLineStart = bytes[i] == '\n';
+            }
+            position += read;
+        }
+        fileEnd = position;
+        if (!isLineStart) {
+            write(ByteBuffer.wrap(new byte[] { '\n' }), fileEnd);
+            fileEnd++;
+        }
+    }
+
+    // the number of lines in the file, which is the number of tasks when the file is in sync with the task list
+    public synchronized int size() {
+        return count;
+    }
+
+    // writes the new line at the end of the file
+    public synchronized void append(Task task) throws IOException {
+        byte[] line = (codec.encode(task) + "\n").getBytes(charset);
+        write(ByteBuffer.wrap(line), fileEnd);
+        addLineStart(fileEnd);
+        fileEnd += line.length;
+        forceIfNeeded();
+    }
+
+    // overwrites the done mark of the line at the given index with the one of the task
+    public synchronized void setDone(int index, Task task) throws IOException {
+        checkIndex(index);
+        int idPrefix = task.getId() > 0 ? 2 + Integer.toString(task.getId()).length() : 0;
+        byte mark = (byte) (task.isDone() ? 'X' : ' ');
+        write(ByteBuffer.wrap(new byte[] { mark }), lineStarts[index] + idPrefix + DONE_MARK_OFFSET);
+        forceIfNeeded();
+    }
+
+    // removes the line at the given index by moving every line after it up
+    public synchronized void remove(int index) throws IOException {
+        checkIndex(index);
+        long target = lineStarts[index];
+        long source = index + 1 < count ? lineStarts[index + 1] : fileEnd;
+        long removedLength = source - target;
+
+        while (source < fileEnd) {
+            copyBuffer.clear();
+            copyBuffer.limit((int) Math.min(COPY_BUFFER_SIZE, fileEnd - source));
+            int read = channel.read(copyBuffer, source);
+            if (read <= 0) {
+                throw new IOException("The task file ended while moving its lines");
+            }
+            copyBuffer.flip();
+            write(copyBuffer, target);
+            source += read;
+            target += read;
+        }
+        channel.truncate(target);
+        fileEnd = target;
+
+        System.arraycopy(lineStarts, index + 1, lineStarts, index, count - index - 1);
+        count--;
+        for (int i = index; i < count; i++) {
+            lineStarts[i] -= removedLength;
+        }
+        forceIfNeeded();
+    }
+
+    // puts a line back at the given index by moving every line from there on down, the last chunk first
+    public synchronized void insert(int index, Task task) throws IOException {
+        if (index < 0 || index > count) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + count);
+        }
+        byte[] line = (codec.encode(task) + "\n").getBytes(charset);
+        long lineStart = index < count ? lineStarts[index] : fileEnd;
+
+        long end = fileEnd;
+        while (end > lineStart) {
+            int length = (int) Math.min(COPY_BUFFER_SIZE, end - lineStart);
+            copyBuffer.clear();
+            copyBuffer.limit(length);
+            long source = end - length;
+            while (copyBuffer.hasRemaining()) {
+                if (channel.read(copyBuffer, source + copyBuffer.position()) <= 0) {
+                    throw new IOException("The task file ended while moving its lines");
+                }
+            }
+            copyBuffer.flip();
+            write(copyBuffer, source + line.length);
+            end = source;
+        }
+        write(ByteBuffer.wrap(line), lineStart);
+        fileEnd += line.length;
+
+        addLineStart(0);
+        System.arraycopy(lineStarts, index, lineStarts, index + 1, count - index - 1);
+        lineStarts[index] = lineStart;
+        for (int i = index + 1; i < count; i++) {
+            lineStarts[i] += line.length;
+        }
+        forceIfNeeded();
+    }
+
+    // makes sure every change so far is on the disk, unless the durability mode leaves that to the OS
+    public synchronized void flush() throws IOException {
+        if (durabilityMode != DurabilityMode.OS_FLUSH) {
+            channel.force(false);
+        }
+    }
+
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private void addLineStart(long offset) {
+        if (count == lineStarts.length) {
+            lineStarts = Arrays.copyOf(lineStarts, count * 2);
+        }
+        lineStarts[count++] = offset;
+    }
+
+    private void write(ByteBuffer bytes, long position) throws IOException {
+        Metrics.addBytesWritten(bytes.remaining());
+        while (bytes.hasRemaining()) {
+            position += channel.write(bytes, position);
+        }
+    }
+
+    // a command waits for its own write in EVERY_COMMAND, the other modes are synced on flush
+    private void forceIfNeeded() throws IOException {
+        if (durabilityMode == DurabilityMode.EVERY_COMMAND) {
+            channel.force(false);
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + count);
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package storage;
+
+import metrics.Metrics;
+import tasklist.*;
+import java.io.*;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * This Journal.java is an append-only log of task list mutations that sits next to the snapshot file.
+ * Every add, delete and mark appends one small record, so a command no longer rewrites the whole snapshot.
+ * On startup the records are replayed on top of the snapshot, and once the journal grows past a threshold
+ * it is rotated into a "compacting" segment and folded into a fresh snapshot by {@link Storage}.
+ *
+ * Each record is a single line: a one letter opcode, and for delete / status / restore records the task index,
+ * followed by the task in its storage format. Delete and status records carry the task they expect at
+ * that index, so replaying a segment that already made it into the snapshot is skipped instead of applied twice.
+ * A restore record puts a removed task back at its old index (after an undo), where an add record always appends.
+ * Add and restore records carry the id of their task, so one whose task is already in the list is skipped too.
+ * A next-id record ("N 42") holds no task, only the lowest id never handed out, for when the task with the highest id
+ * is gone: a fresh journal starts with one after a snapshot, so deleted ids are not handed out again after a restart.
+ * Records are handed to a {@link PersistenceWriter}, which merges them into batched writes in the background.
+ */
+
+public class Journal {
+    static final char ADD = 'A';
+    static final char DELETE = 'D';
+    static final char STATUS = 'S';
+    static final char RESTORE = 'R';
+    static final char NEXT_ID = 'N';
+
+    private final File journalFile;
+    private final File compactingFile;
+    private final PersistenceWriter writer;
+    // reused for every record, appends are synchronized
+    private final StringBuilder recordBuffer = new StringBuilder(128);
+    private int recordCount;
+    private long byteCount;
+    // the highest task id in the list being replayed or in any replayed record, ids are handed out in increasing order
+    private int replayedLastId;
+    // the records replayed on the last start that are about tasks, next-id records left out
+    private int replayedTaskRecords;
+
+    public Journal(File snapshotFile, DurabilityMode mode) {
+        this.journalFile = new File(snapshotFile.getPath() + ".journal");
+        this.compactingFile = new File(snapshotFile.getPath() + ".journal.compacting");
+        this.byteCount = journalFile.length();
+        this.writer = new PersistenceWriter(journalFile, mode);
+    }
+
+    public File getCompactingFile() {
+        return compactingFile;
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    public synchronized void appendAdd(Task task) throws IOException {
+        append(ADD, -1, task);
+    }
+
+    public synchronized void appendDelete(int index, Task task) throws IOException {
+        append(DELETE, index, task);
+    }
+
+    public synchronized void appendStatus(int index, Task task) throws IOException {
+        append(STATUS, index, task);
+    }
+
+    public synchronized void appendRestore(int index, Task task) throws IOException {
+        append(RESTORE, index, task);
+    }
+
+    // records that ids below nextId have been handed out, whatever tasks are left
+    public synchronized void appendNextId(int nextId) throws IOException {
+        recordBuffer.setLength(0);
+        recordBuffer.append(NEXT_ID).append(' ').append(nextId).append('\n');
+        submit();
+    }
+
+    // add records carry no index, so they are written with a negative one
+    private void append(char opcode, int index, Task task) throws IOException {
+        recordBuffer.setLength(0);
+        recordBuffer.append(opcode).append(' ');
+        if (index >= 0) {
+            recordBuffer.append(index).append(' ');
+        }
+        TaskCodec.appendTo(task, recordBuffer);
+        recordBuffer.append('\n');
+        submit();
+    }
+
+    private void submit() throws IOException {
+        byte[] bytes = recordBuffer.toString().getBytes();
+        writer.submit(bytes);
+        recordCount++;
+        byteCount += bytes.length;
+        Metrics.addBytesWritten(bytes.length);
+    }
+
+    // waits until every record appended so far is on disk
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    /**
+     * Closes the live journal and renames it to the compacting segment, so new records start a fresh journal
+     * while the old records are folded into the snapshot in the background.
+     *
+     * @return false if there was nothing to rotate
+     */
+    public synchronized boolean rotate() throws IOException {
+        writer.closeFile();
+        if (!journalFile.exists() || journalFile.length() == 0) {
+            return false;
+        }
+        if (compactingFile.exists()) {
+            throw new IOException("A previous compaction has not finished yet. ❗");
+        }
+        if (!journalFile.renameTo(compactingFile)) {
+            throw new IOException("Unable to rotate the journal file. ❗");
+        }
+        recordCount = 0;
+        byteCount = 0;
+        return true;
+    }
+
+    // drops every record, used once a full snapshot has been written that already includes them
+    public synchronized void reset() throws IOException {
+        writer.closeFile();
+        if (journalFile.exists() && !journalFile.delete()) {
+            throw new IOException("Unable to clear the journal file. ❗");
+        }
+        if (compactingFile.exists() && !compactingFile.delete()) {
+            throw new IOException("Unable to clear the compacting journal file. ❗");
+        }
+        recordCount = 0;
+        byteCount = 0;
+    }
+
+    // writes what is still queued and stops the background writer, nothing can be appended afterwards
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * Replays the compacting segment (if a compaction was interrupted) and then the live journal on top of
+     * the tasks loaded from the snapshot.
+     *
+     * @return the number of records that were applied
+     */
+    public synchronized int replay(List<Task> tasks) throws IOException {
+        // counts of the tasks in the list, so add records are checked for duplicates without a scan
+        HashMap<Task, Integer> taskCounts = new HashMap<>();
+        replayedLastId = 0;
+        replayedTaskRecords = 0;
+        for (Task task : tasks) {
+            taskCounts.merge(task, 1, Integer::sum);
+            replayedLastId = Math.max(replayedLastId, task.getId());
+        }
+        int applied = replayFile(compactingFile, tasks, taskCounts);
+        recordCount = 0;
+        applied += replayFile(journalFile, tasks, taskCounts);
+        return applied;
+    }
+
+    // the lowest id that neither the replayed list nor any replayed record has used, valid after replay
+    public synchronized int getReplayedNextId() {
+        return replayedLastId + 1;
+    }
+
+    // true if the last replay found records about tasks, and not only next-id records
+    public synchronized boolean hasReplayedTaskRecords() {
+        return replayedTaskRecords > 0;
+    }
+
+    private int replayFile(File file, List<Task> tasks, HashMap<Task, Integer> taskCounts) throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+        int applied = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (file == journalFile) {
+                    recordCount++;
+                }
+                if (applyRecord(line, tasks, taskCounts)) {
+                    applied++;
+                }
+            }
+        }
+        return applied;
+    }
+
+    // applies one record, returns false for records that are torn or already reflected in the snapshot
+    private boolean applyRecord(String record, List<Task> tasks, HashMap<Task, Integer> taskCounts) {
+        if (record.length() < 3) {
+            return false;
+        }
+        try {
+            char opcode = record.charAt(0);
+            if (opcode == NEXT_ID) {
+                replayedLastId = Math.max(replayedLastId, Integer.parseInt(record.substring(2).trim()) - 1);
+                return false;
+            }
+            replayedTaskRecords++;
+            if (opcode == ADD) {
+                Task task = TaskCodec.decode(record, 2, record.length());
+                // an id at or below the last one was handed out before, so the task made it into the snapshot
+                if (taskCounts.containsKey(task) || task.getId() > 0 && task.getId() <= replayedLastId) {
+                    return false;
+                }
+                tasks.add(task);
+                taskCounts.put(task, 1);
+                replayedLastId = Math.max(replayedLastId, task.getId());
+                return true;
+            }
+
+            int indexEnd = record.indexOf(' ', 2);
+            int index = Integer.parseInt(record.substring(2, indexEnd));
+            Task task = TaskCodec.decode(record, indexEnd + 1, record.length());
+            if (opcode == RESTORE) {
+                // the list is in id order, so the task goes where its id belongs, unless a task already has that id
+                int position = task.getId() > 0 ? positionOf(tasks, task.getId()) : -index - 1;
+                if (position >= 0 || -position - 1 > tasks.size() || taskCounts.containsKey(task)) {
+                    return false;
+                }
+                tasks.add(-position - 1, task);
+                taskCounts.put(task, 1);
+                return true;
+            }
+            if (index < 0 || index >= tasks.size() || !tasks.get(index).equals(task)
+                    || !hasSameId(tasks.get(index), task)) {
+                return false;
+            }
+            if (opcode == DELETE) {
+                tasks.remove(index);
+                taskCounts.computeIfPresent(task, (key, count) -> count == 1 ? null : count - 1);
+            } else if (opcode == STATUS) {
+                tasks.set(index, tasks.get(index).withDone(task.isDone()));
+            } else {
+                return false;
+            }
+            return true;
+        } catch (RuntimeException e) {
+            // a half written record at the tail of the journal, ignore it
+            return false;
+        }
+    }
+
+    // the index of the task with the id, or -(insertion point) - 1 if there is none, the way Collections.binarySearch does
+    private static int positionOf(List<Task> tasks, int id) {
+        int low = 0;
+        int high = tasks.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleId = tasks.get(middle).getId();
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -low - 1;
+    }
+
+    // tasks from snapshots written before ids existed have none yet, those are matched on content alone
+    private static boolean hasSameId(Task loaded, Task recorded) {
+        return loaded.getId() == 0 || recorded.getId() == 0 || loaded.getId() == recorded.getId();
+    }
+}
@@ -0,0 +1,468 @@
+package storage;
+
+import metrics.Metrics;
+import tasklist.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * This MappedTaskFile.java is a task file laid out so it can be used in place through a memory mapping:
+ * opening it only reads the header, a task is read from its record when it is asked for,
+ * and marking, adding and deleting write the few bytes that change instead of saving the whole list.
+ *
+ * Layout (all numbers big-endian):
+ *   header: magic "SUNM" (4 bytes), version (2 bytes), unused (2 bytes), task count (4 bytes),
+ *           slot capacity (4 bytes), end of the used data (8 bytes), next id (4 bytes), unused (4 bytes)
+ *   slots:  one fixed 16 byte slot per task, in list order: id (4 bytes), type byte ('T', 'D' or 'E'),
+ *           done flag byte, unused (2 bytes), offset of the task's data record (4 bytes),
+ *           hash of type and description (4 bytes, for finding duplicates without reading the records)
+ *   data:   T: description; D: description, deadline in epoch minutes (8 bytes); E: description, start, end
+ *           every string is a 4 byte length followed by that many UTF-8 bytes
+ * Since a slot has a fixed size, the n-th task is found without reading the ones before it, and ids grow in list
+ * order, so a task is found by id with a binary search over the slots.
+ * When the slots or the data region run out the file is rewritten with twice the room, leaving out the data
+ * of deleted tasks. Not thread-safe, {@link MappedTaskList} serializes access.
+ */
+
+public class MappedTaskFile implements Closeable {
+    private static final int MAGIC = 0x53554E4D; // "SUNM"
+    private static final short VERSION = 1;
+
+    private static final int COUNT_OFFSET = 8;
+    private static final int SLOT_CAPACITY_OFFSET = 12;
+    private static final int DATA_END_OFFSET = 16;
+    private static final int NEXT_ID_OFFSET = 24;
+    private static final int HEADER_SIZE = 32;
+
+    private static final int SLOT_SIZE = 16;
+    private static final int SLOT_TYPE = 4;
+    private static final int SLOT_DONE = 5;
+    private static final int SLOT_DATA = 8;
+    private static final int SLOT_HASH = 12;
+
+    private static final int MIN_SLOT_CAPACITY = 1024;
+    private static final int MIN_DATA_CAPACITY = 64 * 1024;
+
+    private static final byte DEADLINE = 'D';
+    private static final byte EVENT = 'E';
+
+    private final File file;
+    private final DurabilityMode durabilityMode;
+    private MappedByteBuffer buffer;
+    private int count;
+    private int slotCapacity;
+    private int dataEnd;
+    // ids of deleted tasks are not handed out again, even when the deleted task was the last one
+    private int nextId;
+    // the ids of the tasks by their slot hash, built by the first contains so later ones do not scan every slot
+    private HashMap<Integer, List<Integer>> idsByHash;
+
+    private MappedTaskFile(File file, DurabilityMode durabilityMode) {
+        this.file = file;
+        this.durabilityMode = durabilityMode;
+    }
+
+    /**
+     * Maps an existing task file. Only the header is read, however many tasks the file holds.
+     *
+     * @throws IOException if the file cannot be mapped or is not a mapped task file
+     */
+    public static MappedTaskFile open(File file, DurabilityMode durabilityMode) throws IOException {
+        MappedTaskFile taskFile = new MappedTaskFile(file, durabilityMode);
+        taskFile.map();
+        MappedByteBuffer buffer = taskFile.buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("This is not a Sunny mapped task file. ❌");
+        }
+        if (buffer.getShort(4) != VERSION) {
+            throw new IOException("Unsupported mapped task file version: " + buffer.getShort(4) + " ❌");
+        }
+        taskFile.count = buffer.getInt(COUNT_OFFSET);
+        taskFile.slotCapacity = buffer.getInt(SLOT_CAPACITY_OFFSET);
+        taskFile.dataEnd = (int) buffer.getLong(DATA_END_OFFSET);
+        taskFile.nextId = buffer.getInt(NEXT_ID_OFFSET);
+        if (taskFile.count < 0 || taskFile.count > taskFile.slotCapacity
+                || taskFile.dataEnd < taskFile.dataStart() || taskFile.dataEnd > buffer.capacity()) {
+            throw new IOException("Corrupted header in mapped task file. ❌");
+        }
+        return taskFile;
+    }
+
+    // writes a new mapped task file holding the tasks, replacing any file that is already there
+    public static MappedTaskFile create(File file, List<Task> tasks, DurabilityMode durabilityMode) throws IOException {
+        return create(file, tasks, tasks.isEmpty() ? 1 : tasks.get(tasks.size() - 1).getId() + 1, durabilityMode);
+    }
+
+    // like create, with the next id carried over from where the tasks were saved before, e.g. Storage#getNextId
+    public static MappedTaskFile create(File file, List<Task> tasks, int nextId, DurabilityMode durabilityMode)
+            throws IOException {
+        MappedTaskFile taskFile = new MappedTaskFile(file, durabilityMode);
+        long dataSize = 0;
+        byte[][] records = new byte[tasks.size()][];
+        for (int i = 0; i < records.length; i++) {
+            records[i] = encode(tasks.get(i));
+            dataSize += records[i].length;
+        }
+        int slotCapacity = Math.max(MIN_SLOT_CAPACITY, tasks.size() * 2);
+        taskFile.writeFile(slotCapacity, dataSize * 2, (out, dataOffset) -> {
+            for (int i = 0; i < records.length; i++) {
+                Task task = tasks.get(i);
+                writeSlot(out, task.getId(), task.getType().charAt(0), task.isDone(), dataOffset, hash(task));
+                dataOffset += records[i].length;
+            }
+        }, out -> {
+            for (byte[] record : records) {
+                out.write(record);
+            }
+        }, tasks.size(), dataSize, Math.max(nextId, tasks.isEmpty() ? 1 : tasks.get(tasks.size() - 1).getId() + 1));
+        return taskFile;
+    }
+
+    // checks the first bytes of the file for the magic number
+    public static boolean isMappedFile(File file) {
+        if (!file.exists() || file.length() < HEADER_SIZE) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    // the id the next added task gets, larger than every id the file has held
+    public int nextId() {
+        return nextId;
+    }
+
+    // reads the task at the given position from its record, a new Task every time
+    public Task get(int position) {
+        int slot = slotOffset(position);
+        int offset = buffer.getInt(slot + SLOT_DATA);
+        String description = readString(offset);
+        offset += 4 + buffer.getInt(offset);
+        int id = buffer.getInt(slot);
+        boolean isDone = buffer.get(slot + SLOT_DONE) != 0;
+        switch (buffer.get(slot + SLOT_TYPE)) {
+            case DEADLINE:
+                return new Deadline(description, BinaryTaskFormat.fromEpochMinute(buffer.getLong(offset)), id, isDone);
+            case EVENT:
+                String start = readString(offset);
+                offset += 4 + buffer.getInt(offset);
+                return new Event(description, start, readString(offset), id, isDone);
+            default:
+                return new Todo(description, id, isDone);
+        }
+    }
+
+    public boolean isDone(int position) {
+        return buffer.get(slotOffset(position) + SLOT_DONE) != 0;
+    }
+
+    // the position of the task with the given id, or -1 if there is none
+    public int positionOf(int id) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleId = idAt(middle);
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    // true if an equal task is in the file; only the tasks whose slot hash matches are read
+    public boolean contains(Task task) {
+        if (idsByHash == null) {
+            idsByHash = new HashMap<>();
+            for (int position = 0; position < count; position++) {
+                indexHash(hashAt(position), idAt(position));
+            }
+        }
+        List<Integer> ids = idsByHash.get(hash(task));
+        if (ids == null) {
+            return false;
+        }
+        for (int id : ids) {
+            int position = positionOf(id);
+            if (position >= 0 && get(position).equals(task)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void indexHash(int hash, int id) {
+        idsByHash.computeIfAbsent(hash, key -> new ArrayList<>(1)).add(id);
+    }
+
+    private int hashAt(int position) {
+        return buffer.getInt(slotOffset(position) + SLOT_HASH);
+    }
+
+    // writes the one byte that holds the done flag
+    public void setDone(int position, boolean isDone) {
+        buffer.put(slotOffset(position) + SLOT_DONE, (byte) (isDone ? 1 : 0));
+        Metrics.addBytesWritten(1);
+        forceIfNeeded();
+    }
+
+    /**
+     * Appends the task with the id it already has, which has to be larger than every id in the file.
+     * The record is written before the slot, and the count in the header last, so a crash half way leaves
+     * the file as it was before.
+     */
+    public void append(Task task) throws IOException {
+        if (count > 0 && task.getId() <= idAt(count - 1)) {
+            throw new IllegalArgumentException("Task ids have to grow in list order: " + task.getId());
+        }
+        byte[] record = encode(task);
+        if (count == slotCapacity || (long) dataEnd + record.length > buffer.capacity()) {
+            rewrite(record.length);
+        }
+        buffer.put(dataEnd, record);
+        // the first free slot, past the ones slotOffset accepts
+        int slot = HEADER_SIZE + count * SLOT_SIZE;
+        buffer.putInt(slot, task.getId());
+        buffer.put(slot + SLOT_TYPE, (byte) task.getType().charAt(0));
+        buffer.put(slot + SLOT_DONE, (byte) (task.isDone() ? 1 : 0));
+        buffer.putInt(slot + SLOT_DATA, dataEnd);
+        buffer.putInt(slot + SLOT_HASH, hash(task));
+        dataEnd += record.length;
+        nextId = Math.max(nextId, task.getId() + 1);
+        buffer.putLong(DATA_END_OFFSET, dataEnd);
+        buffer.putInt(NEXT_ID_OFFSET, nextId);
+        buffer.putInt(COUNT_OFFSET, ++count);
+        if (idsByHash != null) {
+            indexHash(hash(task), task.getId());
+        }
+        Metrics.addBytesWritten(record.length + SLOT_SIZE);
+        forceIfNeeded();
+    }
+
+    // removes the slot at the given position, the slots after it move up by one; the record stays until the next rewrite
+    public void remove(int position) {
+        int slot = slotOffset(position);
+        if (idsByHash != null) {
+            List<Integer> ids = idsByHash.get(hashAt(position));
+            ids.remove(Integer.valueOf(idAt(position)));
+            if (ids.isEmpty()) {
+                idsByHash.remove(hashAt(position));
+            }
+        }
+        buffer.put(slot, buffer, slot + SLOT_SIZE, (count - position - 1) * SLOT_SIZE);
+        buffer.putInt(COUNT_OFFSET, --count);
+        forceIfNeeded();
+    }
+
+    // a read-only list view that reads each task from the file when it is asked for
+    public List<Task> asList() {
+        return new AbstractList<>() {
+            @Override
+            public Task get(int index) {
+                return MappedTaskFile.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    // makes sure every change so far is on the disk
+    public void flush() {
+        buffer.force();
+    }
+
+    // the mapping itself is released by the garbage collector, Java has no way to unmap it earlier
+    @Override
+    public void close() {
+        flush();
+    }
+
+    private void forceIfNeeded() {
+        // in the other modes the OS writes the changed pages back on its own, and flush() forces them
+        if (durabilityMode == DurabilityMode.EVERY_COMMAND) {
+            buffer.force();
+        }
+    }
+
+    private int slotOffset(int position) {
+        if (position < 0 || position >= count) {
+            throw new IndexOutOfBoundsException("Index " + position + " out of bounds for length " + count);
+        }
+        return HEADER_SIZE + position * SLOT_SIZE;
+    }
+
+    private int idAt(int position) {
+        return buffer.getInt(slotOffset(position));
+    }
+
+    private int dataStart() {
+        return HEADER_SIZE + slotCapacity * SLOT_SIZE;
+    }
+
+    private String readString(int offset) {
+        int length = buffer.getInt(offset);
+        byte[] bytes = new byte[length];
+        buffer.get(offset + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // the number of bytes of the record at offset, which depends on the type of its task
+    private int recordLength(int offset, byte type) {
+        int end = offset + 4 + buffer.getInt(offset);
+        if (type == DEADLINE) {
+            end += 8;
+        } else if (type == EVENT) {
+            end += 4 + buffer.getInt(end);
+            end += 4 + buffer.getInt(end);
+        }
+        return end - offset;
+    }
+
+    private static byte[] encode(Task task) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeString(out, task.getDescription());
+        if (task instanceof Deadline) {
+            out.writeLong(BinaryTaskFormat.toEpochMinute(((Deadline) task).getDeadlineDate()));
+        } else if (task instanceof Event) {
+            writeString(out, ((Event) task).getEventStart());
+            writeString(out, ((Event) task).getEventEnd());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeSlot(DataOutputStream out, int id, char type, boolean isDone, long dataOffset, int hash)
+            throws IOException {
+        out.writeInt(id);
+        out.writeByte(type);
+        out.writeByte(isDone ? 1 : 0);
+        out.writeShort(0);
+        out.writeInt((int) dataOffset);
+        out.writeInt(hash);
+    }
+
+    // equal tasks have the same type and description, so they always have the same hash
+    private static int hash(Task task) {
+        return 31 * task.getType().charAt(0) + task.getDescription().hashCode();
+    }
+
+    // rewrites the file with room for twice the live tasks and data plus the record about to be added
+    private void rewrite(int extraData) throws IOException {
+        MappedByteBuffer old = buffer;
+        int oldCount = count;
+        long liveData = 0;
+        for (int position = 0; position < oldCount; position++) {
+            int slot = slotOffset(position);
+            liveData += recordLength(old.getInt(slot + SLOT_DATA), old.get(slot + SLOT_TYPE));
+        }
+        int newSlotCapacity = Math.max(slotCapacity, Math.max(MIN_SLOT_CAPACITY, (oldCount + 1) * 2));
+        writeFile(newSlotCapacity, (liveData + extraData) * 2, (out, dataOffset) -> {
+            for (int position = 0; position < oldCount; position++) {
+                int slot = slotOffset(position);
+                byte type = old.get(slot + SLOT_TYPE);
+                writeSlot(out, old.getInt(slot), (char) type, old.get(slot + SLOT_DONE) != 0, dataOffset,
+                        old.getInt(slot + SLOT_HASH));
+                dataOffset += recordLength(old.getInt(slot + SLOT_DATA), type);
+            }
+        }, out -> {
+            for (int position = 0; position < oldCount; position++) {
+                int slot = slotOffset(position);
+                int offset = old.getInt(slot + SLOT_DATA);
+                byte[] record = new byte[recordLength(offset, old.get(slot + SLOT_TYPE))];
+                old.get(offset, record);
+                out.write(record);
+            }
+        }, oldCount, liveData, nextId);
+    }
+
+    private void map() throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Mapped task files are limited to 2 GB. ❌");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        }
+    }
+
+    private interface RegionWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private interface SlotWriter {
+        void write(DataOutputStream out, long dataOffset) throws IOException;
+    }
+
+    // writes a whole new file next to this one, moves it over it and maps it
+    private void writeFile(int newSlotCapacity, long newDataCapacity, SlotWriter slots, RegionWriter data,
+                           int newCount, long dataSize, int newNextId) throws IOException {
+        long dataStart = HEADER_SIZE + (long) newSlotCapacity * SLOT_SIZE;
+        long length = dataStart + Math.max(MIN_DATA_CAPACITY, newDataCapacity);
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Mapped task files are limited to 2 GB. ❌");
+        }
+        File parentDirectory = file.getAbsoluteFile().getParentFile();
+        if (parentDirectory != null && !parentDirectory.exists()) {
+            parentDirectory.mkdirs();
+        }
+        File temporary = new File(file.getPath() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temporary);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeShort(0);
+            out.writeInt(newCount);
+            out.writeInt(newSlotCapacity);
+            out.writeLong(dataStart + dataSize);
+            out.writeInt(newNextId);
+            out.writeInt(0);
+            slots.write(out, dataStart);
+            out.write(new byte[(newSlotCapacity - newCount) * SLOT_SIZE]);
+            data.write(out);
+            out.flush();
+            // extends the file to its full length, the unused room reads as zeros
+            stream.getChannel().write(ByteBuffer.allocate(1), length - 1);
+            if (durabilityMode != DurabilityMode.OS_FLUSH) {
+                stream.getFD().sync();
+            }
+        }
+        try {
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        map();
+        count = newCount;
+        slotCapacity = newSlotCapacity;
+        dataEnd = (int) (dataStart + dataSize);
+        nextId = newNextId;
+    }
+}
@@ -0,0 +1,351 @@
+package storage;
+
+import tasklist.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntSupplier;
+
+/**
+ * This MappedTaskList.java is a TaskList that lives in a {@link MappedTaskFile} instead of being loaded at startup.
+ * Creating it costs the same however many tasks the file holds: getting a task by number or id, the size,
+ * an unfiltered page of list, and adding, marking and deleting all go straight to the mapped file.
+ * Only the first command that needs the indexes (find, due, events, a filtered list, ...) reads every task
+ * into the usual in-memory tree and indexes; from then on reads are answered from memory as in a TaskList,
+ * and every change is still written to the file in place.
+ * Every method, reads included, holds the write lock of the TaskList, since a read can be the one that loads the tasks
+ * and every other one goes to the file; methods that are not overridden either only touch state the loaded list
+ * keeps too, or are not available. Changes are not reported to a TaskListListener, since the mapped file already
+ * holds them (see writesOwnChanges). The file keeps no older versions either, so there is no undo or redo
+ * (see supportsUndo), and runAs only runs the command.
+ */
+
+public class MappedTaskList extends TaskList {
+    private final MappedTaskFile file;
+    // true once every task has been read into the tree and indexes of the TaskList
+    private boolean isLoaded;
+
+    public MappedTaskList(MappedTaskFile file) {
+        this.file = file;
+    }
+
+    @Override
+    public boolean writesOwnChanges() {
+        return true;
+    }
+
+    // callers check writesOwnChanges first, so this is only reached by mistake
+    @Override
+    public void setListener(TaskListListener listener) {
+        throw new IllegalStateException("A MappedTaskList writes its changes to the mapped file itself");
+    }
+
+    // reads every task into memory the first time a query needs the indexes, called with the write lock held
+    private void load() {
+        if (!isLoaded) {
+            super.addLoadedTasks(file.asList());
+            reserveIdsBelow(file.nextId());
+            isLoaded = true;
+        }
+    }
+
+    @Override
+    public Task addTask(Task task) {
+        lock.writeLock().lock();
+        try {
+            if (isLoaded) {
+                Task addedTask = super.addTask(task);
+                if (addedTask == null) {
+                    return null;
+                }
+                try {
+                    append(addedTask);
+                } catch (UncheckedIOException e) {
+                    super.removeTaskById(addedTask.getId());
+                    throw e;
+                }
+                return addedTask;
+            }
+            if (file.contains(task)) {
+                return null;
+            }
+            Task addedTask = task.withId(file.nextId());
+            append(addedTask);
+            return addedTask;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // the file opens at once whatever its size, so there is never anything to load in the background
+    @Override
+    public CompletableFuture<Integer> loadInBackground(Callable<List<Task>> loader, IntSupplier progress,
+            IntSupplier savedNextId) {
+        throw new IllegalStateException("A MappedTaskList reads its tasks from the mapped file itself");
+    }
+
+    // the tasks go into the tree in one batch, then the records of the copies it holds are appended one after another
+    @Override
+    public void addLoadedTasks(List<Task> loadedTasks) {
+        lock.writeLock().lock();
+        try {
+            load();
+            super.addLoadedTasks(loadedTasks);
+            int first = super.size() - loadedTasks.size();
+            for (int i = 0; i < loadedTasks.size(); i++) {
+                try {
+                    append(super.getTask(first + i));
+                } catch (UncheckedIOException e) {
+                    // the list keeps only what the file holds
+                    while (super.size() > first + i) {
+                        super.removeTaskById(super.getTask(super.size() - 1).getId());
+                    }
+                    throw e;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void append(Task task) {
+        try {
+            file.append(task);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Something went wrong while accessing the file. ❗", e);
+        }
+    }
+
+    @Override
+    public Task removeTask(int index) {
+        lock.writeLock().lock();
+        try {
+            Task removedTask = isLoaded ? super.removeTask(index) : file.get(index);
+            file.remove(index);
+            return removedTask;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Task removeTaskById(int id) {
+        lock.writeLock().lock();
+        try {
+            int index = file.positionOf(id);
+            return index < 0 ? null : removeTask(index);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Task updateTaskStatus(int index, boolean isDone) {
+        lock.writeLock().lock();
+        try {
+            Task task = getTask(index);
+            Task updatedTask = updateTaskStatus(task, isDone);
+            return updatedTask == null ? task : updatedTask;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Task updateTaskStatus(Task task, boolean isDone) {
+        lock.writeLock().lock();
+        try {
+            if (isLoaded) {
+                Task updatedTask = super.updateTaskStatus(task, isDone);
+                if (updatedTask != null) {
+                    file.setDone(file.positionOf(task.getId()), isDone);
+                }
+                return updatedTask;
+            }
+            // before loading, tasks are read from the file for every command, so the task is matched by id
+            int index = file.positionOf(task.getId());
+            if (index < 0 || file.isDone(index) == isDone) {
+                return null;
+            }
+            file.setDone(index, isDone);
+            return task.withDone(isDone);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // the mapped file is changed in place and keeps no older versions, so there is nothing to go back to
+    @Override
+    public boolean supportsUndo() {
+        return false;
+    }
+
+    // callers check supportsUndo first, so these are only reached by mistake
+    @Override
+    public TaskChange undo() {
+        throw new IllegalStateException("Undo is not available for a memory-mapped task file");
+    }
+
+    @Override
+    public TaskChange redo() {
+        throw new IllegalStateException("Redo is not available for a memory-mapped task file");
+    }
+
+    @Override
+    public Task getTask(int index) {
+        lock.writeLock().lock();
+        try {
+            return isLoaded ? super.getTask(index) : file.get(index);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Task getTaskById(int id) {
+        lock.writeLock().lock();
+        try {
+            if (isLoaded) {
+                return super.getTaskById(id);
+            }
+            int index = file.positionOf(id);
+            return index < 0 ? null : file.get(index);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.writeLock().lock();
+        try {
+            return file.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // until the tasks are loaded the tree is empty, the file knows which ids have been handed out
+    @Override
+    public int getNextId() {
+        lock.writeLock().lock();
+        try {
+            return isLoaded ? super.getNextId() : file.nextId();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // an unfiltered page is read straight from the file, only filters need the bitsets of the loaded list
+    @Override
+    public TaskPage getTaskPage(String type, Boolean isDone, int offset, int limit) {
+        lock.writeLock().lock();
+        try {
+            if (isLoaded || type != null || isDone != null) {
+                load();
+                return super.getTaskPage(type, isDone, offset, limit);
+            }
+            int end = (int) Math.min(file.size(), (long) offset + limit);
+            int count = Math.max(0, end - offset);
+            List<Task> window = new ArrayList<>(count);
+            int[] positions = new int[count];
+            for (int i = 0; i < count; i++) {
+                positions[i] = offset + i;
+                window.add(file.get(offset + i));
+            }
+            return new TaskPage(window, positions, file.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getTasks() {
+        lock.writeLock().lock();
+        try {
+            load();
+            return super.getTasks();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public ArrayList<Task> searchTasks(String keyword) {
+        lock.writeLock().lock();
+        try {
+            load();
+            return super.searchTasks(keyword);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Deadline> getTasksDueBefore(LocalDateTime time) {
+        lock.writeLock().lock();
+        try {
+            load();
+            return super.getTasksDueBefore(time);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Deadline> getTasksDueBetween(LocalDateTime start, LocalDateTime end) {
+        lock.writeLock().lock();
+        try {
+            load();
+            return super.getTasksDueBetween(start, end);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Deadline> getOverdueTasks() {
+        lock.writeLock().lock();
+        try {
+            load();
+            return super.getOverdueTasks();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Event> getEventsDuring(LocalDateTime start, LocalDateTime end) {
+        lock.writeLock().lock();
+        try {
+            load();
+            return super.getEventsDuring(start, end);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Event> getConflictingEvents(Event event) {
+        lock.writeLock().lock();
+        try {
+            load();
+            return super.getConflictingEvents(event);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // makes sure every change so far is on the disk
+    public void flush() {
+        file.flush();
+    }
+
+    public void close() {
+        file.close();
+    }
+}
@@ -0,0 +1,164 @@
+package storage;
+
+import tasklist.*;
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * This ParallelTaskLoader.java loads a large task file by memory-mapping it through a {@link FileChannel}.
+ * The file is cut into newline-aligned chunks, the chunks are parsed in parallel on a fork-join pool,
+ * and the results are merged in file order, so every task ends up at the same index as with the serial loader.
+ */
+
+public class ParallelTaskLoader {
+    // chunks smaller than this are not worth handing to another thread
+    private static final long MIN_CHUNK_BYTES = 256 * 1024;
+    // a single mapping cannot be larger than Integer.MAX_VALUE, so keep chunks well below that
+    private static final long MAX_CHUNK_BYTES = 64L * 1024 * 1024;
+    // progress is reported after about this many bytes, so the shared counter is not touched for every line
+    private static final int PROGRESS_STEP_BYTES = 64 * 1024;
+
+    private final ForkJoinPool pool;
+    private final Function<String, Task> lineParser;
+    private final Charset charset;
+
+    public ParallelTaskLoader() {
+        this(ForkJoinPool.commonPool(), Task::parse);
+    }
+
+    public ParallelTaskLoader(ForkJoinPool pool, Function<String, Task> lineParser) {
+        this.pool = pool;
+        this.lineParser = lineParser;
+        this.charset = Charset.defaultCharset();
+    }
+
+    /**
+     * Loads every task in the file, in file order.
+     *
+     * @param file the task file to load
+     * @return the tasks, indexed exactly as the serial loader would index them
+     */
+    public ArrayList<Task> load(File file) throws IOException {
+        return load(file, new AtomicLong());
+    }
+
+    /**
+     * Loads every task in the file, in file order, adding the number of bytes parsed so far to parsedBytes
+     * as it goes, so another thread can show how far the load is.
+     */
+    public ArrayList<Task> load(File file, AtomicLong parsedBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<ChunkParser> chunks = splitIntoChunks(channel, size, parsedBytes);
+            try {
+                pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(chunks)));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            int total = 0;
+            for (ChunkParser chunk : chunks) {
+                total += chunk.join().size();
+            }
+            ArrayList<Task> tasks = new ArrayList<>(total);
+            for (ChunkParser chunk : chunks) {
+                tasks.addAll(chunk.join());
+            }
+            return tasks;
+        }
+    }
+
+    // cuts the file into chunks that each start right after a line break
+    private List<ChunkParser> splitIntoChunks(FileChannel channel, long size, AtomicLong parsedBytes)
+            throws IOException {
+        int parallelism = Math.max(1, pool.getParallelism());
+        long chunkSize = Math.max(MIN_CHUNK_BYTES, Math.min(MAX_CHUNK_BYTES, size / (parallelism * 4L) + 1));
+
+        List<ChunkParser> chunks = new ArrayList<>();
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(size, start + chunkSize);
+            if (end < size) {
+                end = nextLineStart(channel, end, size);
+            }
+            chunks.add(new ChunkParser(channel, start, end - start, parsedBytes));
+            start = end;
+        }
+        return chunks;
+    }
+
+    // returns the offset just past the first '\n' at or after the given position
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position - 1,
+                Math.min(MIN_CHUNK_BYTES, size - position + 1));
+        long offset = position - 1;
+        while (window.hasRemaining()) {
+            offset++;
+            if (window.get() == '\n') {
+                return offset;
+            }
+        }
+        // the line is longer than the window, keep looking further on
+        return offset + 1 >= size ? size : nextLineStart(channel, offset + 1, size);
+    }
+
+    // ForkJoinTask is Serializable, but a chunk parser only lives for one load and is never serialized
+    @SuppressWarnings("serial")
+    private class ChunkParser extends RecursiveTask<List<Task>> {
+        private final FileChannel channel;
+        private final long start;
+        private final long length;
+        private final AtomicLong parsedBytes;
+
+        ChunkParser(FileChannel channel, long start, long length, AtomicLong parsedBytes) {
+            this.channel = channel;
+            this.start = start;
+            this.length = length;
+            this.parsedBytes = parsedBytes;
+        }
+
+        @Override
+        protected List<Task> compute() {
+            byte[] bytes = new byte[(int) length];
+            try {
+                channel.map(FileChannel.MapMode.READ_ONLY, start, length).get(bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            // splits lines the same way BufferedReader.readLine does: on '\n', '\r' or "\r\n"
+            List<Task> tasks = new ArrayList<>();
+            int lineStart = 0;
+            int reported = 0;
+            for (int i = 0; i < bytes.length; i++) {
+                byte b = bytes[i];
+                if (b == '\n' || b == '\r') {
+                    tasks.add(lineParser.apply(new String(bytes, lineStart, i - lineStart, charset)));
+                    if (b == '\r' && i + 1 < bytes.length && bytes[i + 1] == '\n') {
+                        i++;
+                    }
+                    lineStart = i + 1;
+                    if (lineStart - reported >= PROGRESS_STEP_BYTES) {
+                        parsedBytes.addAndGet(lineStart - reported);
+                        reported = lineStart;
+                    }
+                }
+            }
+            if (lineStart < bytes.length) {
+                tasks.add(lineParser.apply(new String(bytes, lineStart, bytes.length - lineStart, charset)));
+            }
+            parsedBytes.addAndGet(bytes.length - reported);
+            return tasks;
+        }
+    }
+}
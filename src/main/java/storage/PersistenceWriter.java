@@ -0,0 +1,319 @@
+package storage;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This PersistenceWriter.java appends records to a file from a background thread.
+ * Records submitted within a short time window (or until the batch is big enough) are merged
+ * into one buffered write, so a burst of commands costs one write and at most one fsync.
+ * How long a caller waits for its record depends on the {@link DurabilityMode}.
+ * A batch that cannot be written (e.g. the disk is full) is kept and written again every so often, ahead of the
+ * records queued after it; callers are told about the failure until a retry succeeds, but no record is dropped.
+ * Closing the writer writes and forces whatever is still queued, then stops the background thread.
+ */
+
+public class PersistenceWriter {
+    private static final long BATCH_WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+    private static final int MAX_BATCH_BYTES = 64 * 1024;
+    private static final long RETRY_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final File file;
+    private final DurabilityMode mode;
+    private final Thread thread;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hasRecords = lock.newCondition();
+    private final Condition hasWritten = lock.newCondition();
+    private final ArrayDeque<byte[]> queue = new ArrayDeque<>();
+    private int queuedBytes;
+    private long submittedCount;
+    private long writtenCount;
+    private long forceRequests;
+    private long forcedCount;
+    private boolean isCloseRequested;
+    private boolean isShutdownRequested;
+    // set by the background thread as it ends, a flush after that has nothing left to wait for
+    private boolean isStopped;
+    private IOException failure;
+
+    // only touched by the writer thread
+    private FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocate(MAX_BATCH_BYTES);
+    // the record count the failed batch left in the buffer ends at, or -1 when no batch is waiting for a retry
+    private long retryBatchEnd = -1;
+
+    public PersistenceWriter(File file, DurabilityMode mode) {
+        this.file = file;
+        this.mode = mode;
+        thread = new Thread(this::run, "sunny-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues a record to be appended. In EVERY_COMMAND mode this waits until the record is on disk.
+     * While the file cannot be written the record is still queued, and written once a retry succeeds.
+     *
+     * @param record the bytes to append, including any line terminator
+     * @throws IOException if the last write failed and has not been retried successfully yet, or the writer is closed
+     */
+    public void submit(byte[] record) throws IOException {
+        lock.lock();
+        try {
+            if (isShutdownRequested) {
+                throw new IOException("Sunny has already closed " + file + " ❗");
+            }
+            queue.add(record);
+            queuedBytes += record.length;
+            long ticket = ++submittedCount;
+            hasRecords.signal();
+            if (mode == DurabilityMode.EVERY_COMMAND) {
+                awaitWritten(ticket);
+            } else {
+                throwIfFailed();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A flush barrier: waits until every record submitted so far has been written and forced to disk,
+     * whatever the durability mode is.
+     */
+    public void flush() throws IOException {
+        awaitForced(false);
+    }
+
+    // flushes and closes the file, the next submitted record opens it again
+    public void closeFile() throws IOException {
+        awaitForced(true);
+    }
+
+    /**
+     * Writes and forces every record submitted so far, closes the file and waits for the background thread to end.
+     * If the last batch still cannot be written, the thread tries it once more before giving up on it.
+     */
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            isShutdownRequested = true;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            awaitForced(true);
+        } finally {
+            joinThread();
+        }
+    }
+
+    private void joinThread() {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void awaitForced(boolean shouldClose) throws IOException {
+        lock.lock();
+        try {
+            throwIfFailed();
+            if (isStopped) {
+                return;
+            }
+            long ticket = ++forceRequests;
+            isCloseRequested |= shouldClose;
+            hasRecords.signal();
+            while (forcedCount < ticket && failure == null && !isStopped) {
+                hasWritten.awaitUninterruptibly();
+            }
+            throwIfFailed();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void awaitWritten(long ticket) throws IOException {
+        while (writtenCount < ticket && failure == null) {
+            hasWritten.awaitUninterruptibly();
+        }
+        throwIfFailed();
+    }
+
+    private void throwIfFailed() throws IOException {
+        if (failure != null) {
+            throw new IOException("Sunny could not write to " + file + " ❗", failure);
+        }
+    }
+
+    private void run() {
+        while (true) {
+            long batchEnd;
+            long forceTicket;
+            boolean shouldClose;
+            lock.lock();
+            try {
+                if (retryBatchEnd >= 0) {
+                    // the failed batch is still in the buffer, the records queued after it wait so the file stays in order
+                    awaitRetry();
+                    batchEnd = retryBatchEnd;
+                } else {
+                    while (queue.isEmpty() && forcedCount == forceRequests) {
+                        if (isShutdownRequested) {
+                            // everything is written, a batch retried after close stopped waiting still needs forcing
+                            try {
+                                forceChannel(true);
+                            } catch (IOException e) {
+                                closeChannel();
+                            }
+                            stop();
+                            return;
+                        }
+                        hasRecords.awaitUninterruptibly();
+                    }
+                    waitForBatch();
+                    batchEnd = writtenCount + queue.size();
+                    fillBuffer();
+                }
+                forceTicket = forceRequests;
+                shouldClose = isCloseRequested;
+                isCloseRequested = false;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            try {
+                writeBuffer();
+                if (forceTicket > forcedCount) {
+                    forceChannel(shouldClose);
+                }
+            } catch (IOException e) {
+                error = e;
+                closeChannel();
+            }
+
+            lock.lock();
+            try {
+                if (error != null) {
+                    failure = error;
+                    retryBatchEnd = batchEnd;
+                    isCloseRequested |= shouldClose;
+                } else {
+                    failure = null;
+                    retryBatchEnd = -1;
+                    writtenCount = batchEnd;
+                    forcedCount = forceTicket;
+                }
+                hasWritten.signalAll();
+                if (error != null && isShutdownRequested) {
+                    stop();
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // called with the lock held as the background thread ends
+    private void stop() {
+        isStopped = true;
+        hasWritten.signalAll();
+    }
+
+    // waits a little before writing a failed batch again, a new record or flush does not make it retry sooner
+    private void awaitRetry() {
+        long remaining = RETRY_DELAY_NANOS;
+        while (remaining > 0) {
+            try {
+                remaining = hasRecords.awaitNanos(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // keeps collecting records until the time window passes or the batch is large enough
+    private void waitForBatch() {
+        if (mode == DurabilityMode.EVERY_COMMAND || forcedCount < forceRequests) {
+            return;
+        }
+        long remaining = BATCH_WINDOW_NANOS;
+        while (remaining > 0 && queuedBytes < MAX_BATCH_BYTES && forcedCount == forceRequests) {
+            try {
+                remaining = hasRecords.awaitNanos(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // moves every queued record into the reusable buffer, growing it only when one batch does not fit
+    private void fillBuffer() {
+        buffer.clear();
+        if (buffer.capacity() < queuedBytes) {
+            buffer = ByteBuffer.allocate(Math.max(queuedBytes, buffer.capacity() * 2));
+        }
+        byte[] record;
+        while ((record = queue.poll()) != null) {
+            buffer.put(record);
+        }
+        queuedBytes = 0;
+        buffer.flip();
+    }
+
+    private void writeBuffer() throws IOException {
+        if (!buffer.hasRemaining()) {
+            return;
+        }
+        if (channel == null) {
+            File parentDirectory = file.getParentFile();
+            if (parentDirectory != null && !parentDirectory.exists()) {
+                parentDirectory.mkdirs();
+            }
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        if (mode != DurabilityMode.OS_FLUSH) {
+            channel.force(false);
+        }
+    }
+
+    // after a failed write the file is opened again for the retry, it appends whatever the buffer still holds
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // the channel is dropped either way
+        }
+        channel = null;
+    }
+
+    private void forceChannel(boolean shouldClose) throws IOException {
+        if (channel == null) {
+            return;
+        }
+        channel.force(false);
+        if (shouldClose) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
@@ -1,21 +1,81 @@
 package storage;
 
+import metrics.LoadEvent;
+import metrics.Metrics;
+import metrics.SaveEvent;
 import tasklist.*;
+import ui.Ui;
 import java.io.*;
+import java.nio.file.*;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This Storage.java represents the storage, which is used to store our task list in the hard disk
- * It will load the user input list into data/sunny.txt everytime the user add or remove command
+ * data/sunny.txt holds the last snapshot of the list, and every add, remove or mark command appends
+ * a record to the journal next to it (see {@link Journal}) instead of rewriting the whole file.
+ * With -Dsunny.writes=in-place there is no journal, each change is patched into data/sunny.txt itself
+ * through the line-offset index of an {@link InPlaceTaskFile}
  */
 
 public class Storage {
-    private static File storageFile;
+    // the journal is folded into a new snapshot once it holds this many records or bytes
+    private static final int COMPACT_RECORD_THRESHOLD = 1000;
+    private static final long COMPACT_BYTE_THRESHOLD = 1024 * 1024;
+    // snapshots at least this big are loaded with the parallel memory-mapped loader
+    private static final long PARALLEL_LOAD_THRESHOLD = 1024 * 1024;
+    // snapshots at least this big take long enough to load that Sunny loads them in the background
+    private static final long BACKGROUND_LOAD_THRESHOLD = 1024 * 1024;
+
+    private final File storageFile;
+    private final Journal journal;
+    private final ExecutorService compactor;
+    private Future<?> pendingCompaction;
+    // set by a compaction that failed on the background thread, reported on the next change
+    private volatile IOException compactionFailure;
+    // where problems found outside of a command (e.g. a failed compaction) are reported
+    private Ui ui = new Ui();
+
+    private final DurabilityMode durabilityMode;
+    // in-place writes need the text format, binary snapshots are always journaled
+    private final boolean isInPlace;
+    // opened by loadTasks, or by the first change if nothing was loaded
+    private volatile InPlaceTaskFile inPlaceFile;
+    // snapshots ending in .bin, or already starting with the binary magic number, use BinaryTaskFormat
+    private final boolean isBinary;
+    // how far loadTasks is, read by other threads while the tasks load in the background
+    private final AtomicLong loadedBytes = new AtomicLong();
+    private volatile long loadSize;
+    // the lowest task id never handed out, as far as the snapshot and journal tell; kept in next-id journal records
+    private volatile int savedNextId = 1;
 
     // this is a constructor to initialise the file path, ensuring the file path provided is not null
     public Storage(String filePath) {
+        this(filePath, DurabilityMode.fromSystemProperty());
+    }
+
+    public Storage(String filePath, DurabilityMode durabilityMode) {
+        this(filePath, durabilityMode, WriteMode.fromSystemProperty());
+    }
+
+    public Storage(String filePath, DurabilityMode durabilityMode, WriteMode writeMode) {
         assert filePath != null : "The filePath cannot be null!";
         storageFile = new File(filePath);
+        this.durabilityMode = durabilityMode;
+        this.isBinary = filePath.endsWith(".bin") || BinaryTaskFormat.isBinaryFile(storageFile);
+        this.isInPlace = writeMode == WriteMode.IN_PLACE && !isBinary;
+        journal = new Journal(storageFile, durabilityMode);
+        compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sunny-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void setUi(Ui ui) {
+        this.ui = ui;
     }
 
     public File load() {
@@ -23,7 +83,7 @@ public class Storage {
     }
 
     // this method is to ensure that the files and the necessary directories exists, if not, create it
-    private static void ensureFileExists() {
+    private void ensureFileExists() {
         if (!storageFile.exists()) {
             File parentDirectory = storageFile.getParentFile();
             if (parentDirectory != null && !parentDirectory.exists()) {
@@ -32,52 +92,561 @@ public class Storage {
         }
     }
 
-    public void writeToFile(ArrayList<Task> tasks) throws IOException {
+    public void writeToFile(List<Task> tasks) throws IOException {
         ensureFileExists();
-        try (FileWriter writer = new FileWriter(storageFile, true)) {
+        TaskCodec codec = new TaskCodec();
+        try (Writer writer = new BufferedWriter(new FileWriter(storageFile, true))) {
             for (Task task : tasks) {
-                writer.write(task.getTaskStorageString() + "\n");
+                codec.write(task, writer);
             }
         }
     }
 
     // save the task list to the specified file path, creating the file if necessary
-    public void save(String filePath, ArrayList<Task> taskList) {
+    public void save(String filePath, List<Task> taskList) {
+        save(filePath, taskList, savedNextId);
+    }
+
+    /**
+     * Saves the task list like save(filePath, taskList), and when the file is the snapshot also remembers that
+     * every id below nextId has been handed out, so ids of deleted tasks are not used again after a restart.
+     *
+     * @param nextId the id the task list hands out next, see TaskList#getNextId
+     */
+    public void save(String filePath, List<Task> taskList, int nextId) {
         File targetFile = new File(filePath);
+        long start = System.nanoTime();
+        SaveEvent event = new SaveEvent();
+        event.begin();
         try {
             ensureFileExists();
 
-            try (FileOutputStream writer = new FileOutputStream(targetFile)) {
-                for (Task task : taskList) {
-                    writer.write((task.getTaskStorageString() + "\n").getBytes());
+            boolean isSnapshot = targetFile.getAbsoluteFile().equals(storageFile.getAbsoluteFile());
+            if (isSnapshot) {
+                // the line offsets of the old file are no longer right, they are indexed again on the next change
+                closeInPlaceFile();
+            }
+            long bytes = writeTasks(targetFile, taskList);
+            event.end();
+            if (event.shouldCommit()) {
+                event.path = targetFile.getPath();
+                event.taskCount = taskList.size();
+                event.bytes = bytes;
+                event.commit();
+            }
+            // the snapshot now holds everything, so the journal records are no longer needed
+            if (isSnapshot) {
+                awaitCompaction();
+                journal.reset();
+                appendNextIdIfNeeded(taskList, nextId);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Something went wrong while accessing the file. ❗", e);
+        } finally {
+            Metrics.SAVES.recordSince(start);
+        }
+    }
+
+    /**
+     * Journals every change made to the task list from now on, compacting the journal when it gets big.
+     * The records are appended while the task list holds its write lock, so they are in the same order as the changes
+     * even when several threads share the task list. A failed append throws an {@link UncheckedIOException}
+     * out of the task list method that made the change.
+     * In the in-place write mode the changes are written into the snapshot instead, under the same lock.
+     * A task list that writes its changes itself (see TaskList#writesOwnChanges) is left alone.
+     */
+    public void attach(TaskList taskList) {
+        if (taskList.writesOwnChanges()) {
+            return;
+        }
+        if (isInPlace) {
+            attachInPlace(taskList);
+            return;
+        }
+        taskList.setListener(new TaskListListener() {
+            @Override
+            public void taskAdded(Task task) {
+                long start = System.nanoTime();
+                appendAdd(task);
+                compactIfNeeded(taskList.getTasks(), taskList.getNextId());
+                Metrics.PERSISTS.recordSince(start);
+            }
+
+            @Override
+            public void taskRemoved(int index, Task task) {
+                long start = System.nanoTime();
+                appendDelete(index, task);
+                compactIfNeeded(taskList.getTasks(), taskList.getNextId());
+                Metrics.PERSISTS.recordSince(start);
+            }
+
+            @Override
+            public void taskStatusChanged(int index, Task task) {
+                long start = System.nanoTime();
+                appendStatus(index, task);
+                compactIfNeeded(taskList.getTasks(), taskList.getNextId());
+                Metrics.PERSISTS.recordSince(start);
+            }
+
+            @Override
+            public void taskRestored(int index, Task task) {
+                long start = System.nanoTime();
+                appendRestore(index, task);
+                compactIfNeeded(taskList.getTasks(), taskList.getNextId());
+                Metrics.PERSISTS.recordSince(start);
+            }
+        });
+    }
+
+    private void attachInPlace(TaskList taskList) {
+        taskList.setListener(new TaskListListener() {
+            @Override
+            public void taskAdded(Task task) {
+                long start = System.nanoTime();
+                try {
+                    inPlaceFile().append(task);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Something went wrong while accessing the file. ❗", e);
+                }
+                Metrics.PERSISTS.recordSince(start);
+            }
+
+            @Override
+            public void taskRemoved(int index, Task task) {
+                long start = System.nanoTime();
+                try {
+                    inPlaceFile().remove(index);
+                    // the snapshot no longer shows the highest id handed out, the journal keeps it instead
+                    if (index == taskList.size()) {
+                        ensureFileExists();
+                        journal.appendNextId(taskList.getNextId());
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Something went wrong while accessing the file. ❗", e);
+                }
+                Metrics.PERSISTS.recordSince(start);
+            }
+
+            @Override
+            public void taskStatusChanged(int index, Task task) {
+                long start = System.nanoTime();
+                try {
+                    inPlaceFile().setDone(index, task);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Something went wrong while accessing the file. ❗", e);
                 }
+                Metrics.PERSISTS.recordSince(start);
             }
+
+            @Override
+            public void taskRestored(int index, Task task) {
+                long start = System.nanoTime();
+                try {
+                    inPlaceFile().insert(index, task);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Something went wrong while accessing the file. ❗", e);
+                }
+                Metrics.PERSISTS.recordSince(start);
+            }
+        });
+    }
+
+    private InPlaceTaskFile inPlaceFile() throws IOException {
+        if (inPlaceFile == null) {
+            ensureFileExists();
+            inPlaceFile = InPlaceTaskFile.open(storageFile, durabilityMode);
+        }
+        return inPlaceFile;
+    }
+
+    private void closeInPlaceFile() throws IOException {
+        if (inPlaceFile != null) {
+            inPlaceFile.close();
+            inPlaceFile = null;
+        }
+    }
+
+    // appends a record for a newly added task instead of rewriting the whole file
+    public void appendAdd(Task task) {
+        try {
+            ensureFileExists();
+            journal.appendAdd(task);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Something went wrong while accessing the file. ❗", e);
+        }
+    }
+
+    // appends a record for the task removed at the given index
+    public void appendDelete(int index, Task task) {
+        try {
+            ensureFileExists();
+            journal.appendDelete(index, task);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Something went wrong while accessing the file. ❗", e);
+        }
+    }
+
+    // appends a record for the task at the given index being marked or unmarked
+    public void appendStatus(int index, Task task) {
+        try {
+            ensureFileExists();
+            journal.appendStatus(index, task);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Something went wrong while accessing the file. ❗", e);
+        }
+    }
+
+    // appends a record for a removed task put back at the given index
+    public void appendRestore(int index, Task task) {
+        try {
+            ensureFileExists();
+            journal.appendRestore(index, task);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Something went wrong while accessing the file. ❗", e);
+        }
+    }
+
+    /**
+     * Folds the journal into a new snapshot on a background thread once it passes the size or record threshold.
+     * The task list is copied on the calling thread, so later commands can keep changing it while the snapshot is written.
+     *
+     * @param tasks the current task list, which already includes every journal record
+     * @param nextId the id the task list hands out next, kept in the fresh journal
+     */
+    public void compactIfNeeded(List<Task> tasks, int nextId) {
+        IOException failure = compactionFailure;
+        if (failure != null) {
+            compactionFailure = null;
+            ui.displayErrorMessage("Sunny could not compact the journal, your tasks are safe in it and it is tried again later: "
+                    + failure.getMessage() + " ❗");
+        }
+        if (journal.getRecordCount() < COMPACT_RECORD_THRESHOLD && journal.getByteCount() < COMPACT_BYTE_THRESHOLD) {
+            return;
+        }
+        if (pendingCompaction != null && !pendingCompaction.isDone()) {
+            return;
+        }
+        // a segment left by a compaction that failed is folded again, together with the live journal records so far;
+        // those stay in the live journal, replaying them over the newer snapshot changes nothing
+        if (!journal.getCompactingFile().exists()) {
+            try {
+                if (!journal.rotate()) {
+                    return;
+                }
+                appendNextIdIfNeeded(tasks, nextId);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Something went wrong while accessing the file. ❗", e);
+            }
+        }
+        List<Task> snapshot = new ArrayList<>(tasks);
+        pendingCompaction = compactor.submit(() -> {
+            try {
+                writeSnapshot(snapshot);
+                Files.deleteIfExists(journal.getCompactingFile().toPath());
+            } catch (IOException e) {
+                // the compacting segment is kept and replayed on the next start, so nothing is lost
+                compactionFailure = e;
+            }
+        });
+    }
+
+    // starts the fresh journal with a next-id record when the snapshot does not show the highest id handed out
+    private void appendNextIdIfNeeded(List<Task> tasks, int nextId) throws IOException {
+        savedNextId = Math.max(savedNextId, nextId);
+        int lastId = tasks.isEmpty() ? 0 : tasks.get(tasks.size() - 1).getId();
+        if (savedNextId > lastId + 1) {
+            journal.appendNextId(savedNextId);
+        }
+    }
+
+    // the lowest id never handed out according to the files, known once loadTasks has run
+    public int getNextId() {
+        return savedNextId;
+    }
+
+    // writes the snapshot to a temporary file first and moves it over the old one, so a crash never leaves half a file
+    private void writeSnapshot(List<Task> tasks) throws IOException {
+        ensureFileExists();
+        Path target = storageFile.toPath();
+        Path temporary = new File(storageFile.getPath() + ".tmp").toPath();
+        writeTasks(temporary.toFile(), tasks);
+        try {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // writes every task in the snapshot format of this storage with one buffered stream, returns the bytes written
+    private long writeTasks(File targetFile, List<Task> tasks) throws IOException {
+        try (FileOutputStream stream = new FileOutputStream(targetFile);
+             BufferedOutputStream writer = new BufferedOutputStream(stream)) {
+            if (isBinary) {
+                BinaryTaskFormat.write(writer, tasks);
+            } else {
+                Writer textWriter = new OutputStreamWriter(writer);
+                TaskCodec codec = new TaskCodec();
+                for (Task task : tasks) {
+                    codec.write(task, textWriter);
+                }
+                textWriter.flush();
+            }
+            writer.flush();
+            if (durabilityMode != DurabilityMode.OS_FLUSH) {
+                stream.getFD().sync();
+            }
+            long bytes = stream.getChannel().position();
+            Metrics.addBytesWritten(bytes);
+            return bytes;
+        }
+    }
+
+    /**
+     * Converts a text task file into the binary format, leaving the text file untouched.
+     *
+     * @param textFile the task file in the [T][X] text format
+     * @param binaryFile the file to write the binary format to
+     */
+    public static void convertTextToBinary(File textFile, File binaryFile) throws IOException {
+        ArrayList<Task> tasks = new ParallelTaskLoader().load(textFile);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(binaryFile))) {
+            BinaryTaskFormat.write(out, tasks);
+        }
+    }
+
+    /**
+     * Converts a binary or mapped task file back into the text format, so it can be read and edited by hand.
+     *
+     * @param binaryFile the task file in the binary or mapped format
+     * @param textFile the file to write the text format to
+     */
+    public static void convertBinaryToText(File binaryFile, File textFile) throws IOException {
+        List<Task> tasks;
+        if (MappedTaskFile.isMappedFile(binaryFile)) {
+            tasks = MappedTaskFile.open(binaryFile, DurabilityMode.OS_FLUSH).asList();
+        } else {
+            try (InputStream in = new BufferedInputStream(new FileInputStream(binaryFile))) {
+                tasks = BinaryTaskFormat.read(in, binaryFile.length());
+            }
+        }
+        TaskCodec codec = new TaskCodec();
+        try (Writer writer = new BufferedWriter(new FileWriter(textFile))) {
+            for (Task task : tasks) {
+                codec.write(task, writer);
+            }
+        }
+    }
+
+    private void awaitCompaction() {
+        if (pendingCompaction == null) {
+            return;
+        }
+        try {
+            pendingCompaction.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Something went wrong while compacting the journal. ❗", e.getCause());
+        }
+    }
+
+    /**
+     * A flush barrier for the background writer: returns once every journaled mutation is on disk.
+     * Sunny calls this on bye so nothing queued is lost when the program exits.
+     */
+    public void flush() {
+        try {
+            InPlaceTaskFile file = inPlaceFile;
+            if (file != null) {
+                file.flush();
+            }
+            journal.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("Something went wrong while accessing the file. ❗", e);
+        }
+    }
+
+    // waits for any background compaction and releases the journal, called when Sunny shuts down
+    public void close() {
+        awaitCompaction();
+        compactor.shutdown();
+        try {
+            closeInPlaceFile();
+            journal.close();
         } catch (IOException e) {
             throw new RuntimeException("Something went wrong while accessing the file. ❗", e);
         }
     }
 
+    /**
+     * Opens the memory-mapped task file next to the snapshot, e.g. data/sunny.map for data/sunny.txt.
+     * The first time it is created from the snapshot and journal, later opens only read its header.
+     */
+    public MappedTaskFile openMappedFile() throws IOException {
+        File mappedFile = mappedFile();
+        if (mappedFile.exists()) {
+            return MappedTaskFile.open(mappedFile, durabilityMode);
+        }
+        ArrayList<Task> tasks = loadTasks();
+        return MappedTaskFile.create(mappedFile, tasks, savedNextId, durabilityMode);
+    }
+
+    // the mapped task file next to the snapshot, whether it exists or not
+    private File mappedFile() {
+        String path = storageFile.getPath();
+        int extension = path.lastIndexOf('.');
+        return new File((extension > path.lastIndexOf(File.separatorChar) ? path.substring(0, extension) : path)
+                + ".map");
+    }
+
+    /**
+     * Takes the tasks back from a mapped task file left by a run with --mapped, which changed only that file:
+     * they are saved as the snapshot and the mapped file is deleted, so the next run with --mapped creates it again
+     * from the snapshot instead of opening an older copy.
+     */
+    private ArrayList<Task> importMappedFile(File mappedFile) throws IOException {
+        ArrayList<Task> tasks;
+        try {
+            MappedTaskFile taskFile = MappedTaskFile.open(mappedFile, durabilityMode);
+            tasks = new ArrayList<>(taskFile.asList());
+            savedNextId = taskFile.nextId();
+            taskFile.close();
+        } catch (IOException e) {
+            throw new IOException("Error reading tasks from " + mappedFile.getPath() + ". ❌", e);
+        }
+        save(storageFile.getPath(), tasks);
+        Files.delete(mappedFile.toPath());
+        ui.printMessage("Sunny saved the tasks from " + mappedFile.getPath() + " into " + storageFile.getPath()
+                + ", the changes made with --mapped are all here. 🔄");
+        return tasks;
+    }
+
+    // true if the snapshot is big enough that it is worth loading while the user already types commands
+    public boolean isLargeSnapshot() {
+        return storageFile.length() >= BACKGROUND_LOAD_THRESHOLD;
+    }
+
+    // how much of the snapshot loadTasks has parsed, from 0 to 100 percent
+    public int getLoadProgress() {
+        long size = loadSize;
+        return size <= 0 ? 100 : (int) Math.min(100, loadedBytes.get() * 100 / size);
+    }
+
     // load tasks from the file and return them as a list
     public ArrayList<Task> loadTasks() throws IOException {
+        long start = System.nanoTime();
+        LoadEvent event = new LoadEvent();
+        event.begin();
+        try {
+            ArrayList<Task> tasks = readTasks(event);
+            Metrics.LOADS.recordSince(start);
+            Metrics.addTasksLoaded(tasks.size());
+            return tasks;
+        } catch (IllegalArgumentException e) {
+            // a line that is not a task
+            event.parseFailures++;
+            event.error = e.getMessage();
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            event.error = e.getMessage();
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.path = storageFile.getPath();
+                event.bytes = loadSize;
+                event.commit();
+            }
+            loadSize = 0;
+        }
+    }
+
+    // reads the snapshot and replays the journal, filling in the counts of the load event as it goes
+    private ArrayList<Task> readTasks(LoadEvent event) throws IOException {
         ArrayList<Task> tasks = new ArrayList<>();
 
         // ensure the file exists before attempting to load
         ensureFileExists();
+        loadedBytes.set(0);
+        loadSize = storageFile.length();
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(storageFile))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                Task task = Task.parse(line);
-                tasks.add(task);
+        // openMappedFile only loads when there is no mapped file, so one found here was left by a run with --mapped
+        File mappedFile = mappedFile();
+        if (mappedFile.exists()) {
+            tasks = importMappedFile(mappedFile);
+            event.linesParsed = tasks.size();
+            if (isInPlace) {
+                indexSnapshot(tasks);
             }
-        } catch (FileNotFoundException e) {
-            System.out.println("Looks like you're starting fresh! Let's add some tasks to get started. \uD83D\uDDD2\uFE0F ✍\uFE0F \nYou can type 'help' to see all available commands. \uD83D\uDC81\u200D♀\uFE0F");
+            return tasks;
+        }
+
+        if (isBinary) {
+            if (storageFile.exists()) {
+                try (InputStream in = new BufferedInputStream(new FileInputStream(storageFile))) {
+                    tasks = BinaryTaskFormat.read(in, storageFile.length());
+                } catch (IOException e) {
+                    throw new IOException("Error reading tasks from file. ❌", e);
+                }
+            }
+        } else if (storageFile.length() >= PARALLEL_LOAD_THRESHOLD) {
+            // big files are memory-mapped and parsed in parallel, small ones are not worth the hand-off
+            try {
+                tasks = new ParallelTaskLoader().load(storageFile, loadedBytes);
+            } catch (IOException e) {
+                throw new IOException("Error reading tasks from file. ❌", e);
+            }
+        } else {
+            try (BufferedReader reader = new BufferedReader(new FileReader(storageFile))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Task task = Task.parse(line);
+                    tasks.add(task);
+                    loadedBytes.lazySet(loadedBytes.get() + line.length() + 1);
+                }
+            } catch (FileNotFoundException e) {
+                System.out.println("Looks like you're starting fresh! Let's add some tasks to get started. \uD83D\uDDD2\uFE0F ✍\uFE0F \nYou can type 'help' to see all available commands. \uD83D\uDC81\u200D♀\uFE0F");
+            } catch (IOException e) {
+                throw new IOException("Error reading tasks from file. ❌", e);
+            }
+        }
+
+        // the snapshot is in, only the journal is left
+        event.linesParsed = tasks.size();
+        loadedBytes.set(Math.max(0, loadSize - 1));
+        // replay whatever was journaled since the last snapshot
+        boolean hasCompactingSegment = journal.getCompactingFile().exists();
+        try {
+            event.journalRecords = journal.replay(tasks);
         } catch (IOException e) {
-            throw new IOException("Error reading tasks from file. ❌", e);
+            throw new IOException("Error replaying the task journal. ❌", e);
+        }
+        savedNextId = journal.getReplayedNextId();
+
+        // files from before tasks had ids: number the tasks once and save them, so the ids stay the same from now on;
+        // a segment left by an unfinished compaction is folded in now, so it is not replayed on every start
+        if (TaskList.assignMissingIds(tasks, savedNextId) || hasCompactingSegment) {
+            savedNextId = Math.max(savedNextId, tasks.isEmpty() ? 1 : tasks.get(tasks.size() - 1).getId() + 1);
+            save(storageFile.getPath(), tasks);
+        }
+        if (isInPlace) {
+            indexSnapshot(tasks);
         }
         return tasks;
     }
-}
-
-
 
+    /**
+     * Opens the snapshot for in-place writes. Anything journaled before (e.g. by a run in the journal mode)
+     * is saved into the snapshot first, and so is a file whose lines do not match the loaded tasks one to one,
+     * since the index maps the n-th line to the n-th task.
+     */
+    private void indexSnapshot(List<Task> tasks) throws IOException {
+        if (journal.hasReplayedTaskRecords() || journal.getCompactingFile().exists()) {
+            save(storageFile.getPath(), tasks);
+        }
+        if (inPlaceFile().size() != tasks.size()) {
+            save(storageFile.getPath(), tasks);
+            inPlaceFile();
+        }
+    }
+}
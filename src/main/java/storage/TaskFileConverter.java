@@ -0,0 +1,36 @@
+package storage;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * This TaskFileConverter.java converts task files between the text format and the binary format.
+ * Usage: java storage.TaskFileConverter to-binary data/sunny.txt data/sunny.bin
+ *        java storage.TaskFileConverter to-text data/sunny.bin data/sunny.txt
+ *        java storage.TaskFileConverter to-text data/sunny.map data/sunny.txt   (a file written by Sunny --mapped)
+ */
+
+public class TaskFileConverter {
+    public static void main(String[] args) {
+        if (args.length != 3) {
+            System.out.println("Usage: TaskFileConverter <to-binary|to-text> <source file> <target file>");
+            return;
+        }
+
+        File source = new File(args[1]);
+        File target = new File(args[2]);
+        try {
+            if (args[0].equalsIgnoreCase("to-binary")) {
+                Storage.convertTextToBinary(source, target);
+            } else if (args[0].equalsIgnoreCase("to-text")) {
+                Storage.convertBinaryToText(source, target);
+            } else {
+                System.out.println("Unknown conversion: " + args[0] + ". Use to-binary or to-text.");
+                return;
+            }
+            System.out.println("Converted " + source + " into " + target + " ✅");
+        } catch (IOException e) {
+            System.out.println("Something went wrong while converting the file: " + e.getMessage() + " ❗");
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package storage;
+
+/**
+ * This WriteMode.java lists how {@link Storage} gets each change into data/sunny.txt.
+ * The mode can be picked when starting Sunny with -Dsunny.writes=journal|in-place
+ */
+
+public enum WriteMode {
+    // changes are appended to the journal and folded into the snapshot in the background
+    JOURNAL,
+    // changes are written straight into the text snapshot through its line-offset index (see InPlaceTaskFile)
+    IN_PLACE;
+
+    public static final String PROPERTY = "sunny.writes";
+
+    /**
+     * Reads the write mode from the sunny.writes system property, falling back to JOURNAL.
+     * An unknown value is reported instead of silently falling back, so a typo does not go unnoticed.
+     *
+     * @return the selected write mode
+     */
+    public static WriteMode fromSystemProperty() {
+        String value = System.getProperty(PROPERTY);
+        if (value == null || value.trim().equalsIgnoreCase("journal")) {
+            return JOURNAL;
+        }
+        if (value.trim().equalsIgnoreCase("in-place")) {
+            return IN_PLACE;
+        }
+        System.out.println("Sunny does not know -D" + PROPERTY + "=" + value
+                + ", use journal or in-place. Going on with journal. ❗");
+        return JOURNAL;
+    }
+}
@@ -2,16 +2,23 @@ package tasklist;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Objects;
 /**
  * This Deadline.java represents a type of task (Deadline)
  * Deadline includes the endDate / endTime of a task that requires timing urgency
  */
 
 public class Deadline extends Task {
+    private static final DateTimeFormatter DISPLAY_FORMAT = DateTimeFormatter.ofPattern("MMM d yyyy, h:mm a");
+
     private final LocalDateTime deadlineDate;
 
     public Deadline(String deadlineDescription, LocalDateTime date) {
-        super(deadlineDescription);
+        this(deadlineDescription, date, 0, false);
+    }
+
+    public Deadline(String deadlineDescription, LocalDateTime date, int id, boolean isDone) {
+        super(deadlineDescription, id, isDone);
         this.deadlineDate = date;
     }
 
@@ -27,15 +34,7 @@ public class Deadline extends Task {
     @Override
     public String getDetails() {
         // format the LocalDateTime into a user-friendly string
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM d yyyy, h:mm a");
-        return String.format("(by: %s)", deadlineDate.format(formatter));
-    }
-
-    @Override
-    public String getTaskStorageString() {
-        // format the LocalDateTime into a savable string
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
-        return String.format("[D][%s] %s (by: %s)", getStatusIcon(), description, deadlineDate.format(formatter));
+        return "(by: " + DISPLAY_FORMAT.format(deadlineDate) + ")";
     }
 
     @Override
@@ -50,6 +49,6 @@ public class Deadline extends Task {
 
     @Override
     public int hashCode() {
-        return description.hashCode() + deadlineDate.hashCode();
+        return Objects.hash(super.hashCode(), deadlineDate);
     }
 }
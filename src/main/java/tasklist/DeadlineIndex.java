@@ -0,0 +1,75 @@
+package tasklist;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * This DeadlineIndex.java keeps every deadline sorted by its due time, so range questions like
+ * "what is due before Friday" walk only the matching part of the list instead of scanning it.
+ * Entries are keyed by the due time in epoch minutes with the task id as a tiebreaker,
+ * and a second map holds only the deadlines that are not done yet, for overdue.
+ */
+
+public class DeadlineIndex {
+    // the task id takes the low 31 bits of the key, the epoch minute the rest
+    private static final int ID_BITS = 31;
+
+    private final TreeMap<Long, Deadline> deadlines = new TreeMap<>();
+    private final TreeMap<Long, Deadline> pendingDeadlines = new TreeMap<>();
+
+    public void add(Deadline deadline) {
+        long key = keyOf(deadline);
+        deadlines.put(key, deadline);
+        if (!deadline.isDone()) {
+            pendingDeadlines.put(key, deadline);
+        }
+    }
+
+    public void remove(Deadline deadline) {
+        long key = keyOf(deadline);
+        deadlines.remove(key);
+        pendingDeadlines.remove(key);
+    }
+
+    // puts the marked or unmarked copy of an indexed deadline in its place, the key stays the same
+    public void updateStatus(Deadline deadline) {
+        long key = keyOf(deadline);
+        deadlines.put(key, deadline);
+        if (deadline.isDone()) {
+            pendingDeadlines.remove(key);
+        } else {
+            pendingDeadlines.put(key, deadline);
+        }
+    }
+
+    // deadlines due strictly before the given time, earliest first
+    public List<Deadline> dueBefore(LocalDateTime time) {
+        return new ArrayList<>(deadlines.headMap(lowerKey(time), false).values());
+    }
+
+    // deadlines due from the start time (inclusive) up to the end time (exclusive), earliest first
+    public List<Deadline> dueBetween(LocalDateTime start, LocalDateTime end) {
+        if (!start.isBefore(end)) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(deadlines.subMap(lowerKey(start), true, lowerKey(end), false).values());
+    }
+
+    // deadlines that are not done yet and are due before now, earliest first
+    public List<Deadline> overdue(LocalDateTime now) {
+        return new ArrayList<>(pendingDeadlines.headMap(lowerKey(now), false).values());
+    }
+
+    private static long keyOf(Deadline deadline) {
+        return lowerKey(deadline.getDeadlineDate()) | deadline.getId();
+    }
+
+    // the smallest key for the given minute, so ranges can be cut on minute boundaries
+    private static long lowerKey(LocalDateTime time) {
+        long epochMinute = Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+        return epochMinute << ID_BITS;
+    }
+}
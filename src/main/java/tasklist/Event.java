@@ -1,18 +1,66 @@
 package tasklist;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Objects;
+
 /**
  * This Event.java represents a type of task (Event)
  * Event includes start time and end time of an Event
+ * The start and end are kept exactly as typed for display, and are also parsed into real times
+ * when they look like "yyyy-MM-dd HH:mm" or "yyyy-MM-dd" (the end may also be just "HH:mm" on the start day),
+ * so events can be checked for overlaps. Free-form times like "Mon 2pm" stay unparsed.
  */
 
 public class Event extends Task {
     private final String eventStart;
     private final String eventEnd;
+    private final LocalDateTime startTime;
+    private final LocalDateTime endTime;
 
     public Event(String eventDescription, String from, String to) {
-        super(eventDescription);
+        this(eventDescription, from, to, 0, false);
+    }
+
+    public Event(String eventDescription, String from, String to, int id, boolean isDone) {
+        super(eventDescription, id, isDone);
         this.eventStart = from;
         this.eventEnd = to;
+
+        LocalDateTime parsedStart = parseStart(from);
+        LocalDateTime parsedEnd = parsedStart == null ? null : parseEnd(to, parsedStart.toLocalDate());
+        boolean isValidSpan = parsedEnd != null && !parsedEnd.isBefore(parsedStart);
+        this.startTime = isValidSpan ? parsedStart : null;
+        this.endTime = isValidSpan ? parsedEnd : null;
+    }
+
+    private static LocalDateTime parseStart(String text) {
+        String trimmed = text.trim();
+        try {
+            if (trimmed.length() <= "yyyy-MM-dd".length()) {
+                return TaskCodec.parseDate(trimmed).atStartOfDay();
+            }
+            return TaskCodec.parseDateTime(trimmed);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    // a bare date ends at the end of that day, a bare time is on the same day the event starts
+    private static LocalDateTime parseEnd(String text, LocalDate startDate) {
+        String trimmed = text.trim();
+        try {
+            if (trimmed.length() <= "HH:mm".length()) {
+                return startDate.atTime(TaskCodec.parseTime(trimmed));
+            }
+            if (trimmed.length() <= "yyyy-MM-dd".length()) {
+                return TaskCodec.parseDate(trimmed).plusDays(1).atStartOfDay();
+            }
+            return TaskCodec.parseDateTime(trimmed);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
     }
 
     public String getEventStart() {
@@ -23,6 +71,21 @@ public class Event extends Task {
         return this.eventEnd;
     }
 
+    // true when both the start and the end could be parsed into real times
+    public boolean hasTimeBounds() {
+        return startTime != null;
+    }
+
+    // the parsed start time, or null if the start is free-form text
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    // the parsed end time, or null if the end is free-form text
+    public LocalDateTime getEndTime() {
+        return endTime;
+    }
+
     @Override
     public String getType() {
         return "E";
@@ -33,12 +96,6 @@ public class Event extends Task {
         return String.format("(from: %s, to: %s)", eventStart, eventEnd);
     }
 
-    @Override
-    public String getTaskStorageString() {
-        String doneMark = isDone() ? "X" : " ";
-        return String.format("[E][%s] %s (from: %s, to: %s)", doneMark, description, eventStart, eventEnd);
-    }
-
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
@@ -51,7 +108,7 @@ public class Event extends Task {
 
     @Override
     public int hashCode() {
-        return description.hashCode() + eventStart.hashCode() + eventEnd.hashCode();
+        return Objects.hash(super.hashCode(), eventStart, eventEnd);
     }
 
 }
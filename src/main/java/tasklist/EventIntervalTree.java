@@ -0,0 +1,216 @@
+package tasklist;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This EventIntervalTree.java is an interval tree over the time spans of events.
+ * It is an AVL tree ordered by start time (task id as tiebreaker) where every node also remembers
+ * the latest end time in its subtree, so overlap queries skip whole subtrees that end too early
+ * and run in O(log n + k). Spans are half-open, so back-to-back events do not overlap.
+ */
+
+public class EventIntervalTree {
+    private Node root;
+    private int size;
+
+    private static class Node {
+        final long start;
+        final long end;
+        final int id;
+        final Event event;
+        long maxEnd;
+        int height = 1;
+        Node left;
+        Node right;
+
+        Node(long start, long end, Event event) {
+            this.start = start;
+            this.end = end;
+            this.id = event.getId();
+            this.event = event;
+            this.maxEnd = end;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // adds the event if it has parsed start and end times, events without them are not indexed
+    public void add(Event event) {
+        if (!event.hasTimeBounds()) {
+            return;
+        }
+        root = insert(root, new Node(toMinute(event.getStartTime()), endMinute(event), event));
+        size++;
+    }
+
+    public void remove(Event event) {
+        if (!event.hasTimeBounds()) {
+            return;
+        }
+        root = delete(root, toMinute(event.getStartTime()), event.getId());
+    }
+
+    public void clear() {
+        root = null;
+        size = 0;
+    }
+
+    /**
+     * Finds every indexed event whose span overlaps [start, end).
+     *
+     * @return the overlapping events, ordered by start time
+     */
+    public List<Event> overlapping(LocalDateTime start, LocalDateTime end) {
+        List<Event> events = new ArrayList<>();
+        collect(root, toMinute(start), toMinute(end), null, events);
+        return events;
+    }
+
+    /**
+     * Finds the other events that overlap the given event. The event itself is left out, and so is an equal event,
+     * i.e. the copy a TaskList added in its place; the list never holds two equal events.
+     */
+    public List<Event> conflictsWith(Event event) {
+        List<Event> events = new ArrayList<>();
+        if (event.hasTimeBounds()) {
+            collect(root, toMinute(event.getStartTime()), endMinute(event), event, events);
+        }
+        return events;
+    }
+
+    private static void collect(Node node, long start, long end, Event excluded, List<Event> events) {
+        if (node == null || node.maxEnd <= start) {
+            return;
+        }
+        collect(node.left, start, end, excluded, events);
+        if (node.start >= end) {
+            // everything to the right starts even later
+            return;
+        }
+        if (node.end > start && !node.event.equals(excluded)) {
+            events.add(node.event);
+        }
+        collect(node.right, start, end, excluded, events);
+    }
+
+    private static int compare(long start, int id, Node node) {
+        int byStart = Long.compare(start, node.start);
+        return byStart != 0 ? byStart : Integer.compare(id, node.id);
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (compare(added.start, added.id, node) < 0) {
+            node.left = insert(node.left, added);
+        } else {
+            node.right = insert(node.right, added);
+        }
+        return rebalance(node);
+    }
+
+    private Node delete(Node node, long start, int id) {
+        if (node == null) {
+            return null;
+        }
+        int comparison = compare(start, id, node);
+        if (comparison < 0) {
+            node.left = delete(node.left, start, id);
+        } else if (comparison > 0) {
+            node.right = delete(node.right, start, id);
+        } else {
+            size--;
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            // replace the node with its successor
+            Node successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            Node rightWithoutSuccessor = removeMin(node.right);
+            successor.left = node.left;
+            successor.right = rightWithoutSuccessor;
+            return rebalance(successor);
+        }
+        return rebalance(node);
+    }
+
+    private static Node removeMin(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = removeMin(node.left);
+        return rebalance(node);
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static void update(Node node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        long maxEnd = node.end;
+        if (node.left != null) {
+            maxEnd = Math.max(maxEnd, node.left.maxEnd);
+        }
+        if (node.right != null) {
+            maxEnd = Math.max(maxEnd, node.right.maxEnd);
+        }
+        node.maxEnd = maxEnd;
+    }
+
+    private static Node rebalance(Node node) {
+        update(node);
+        int balance = height(node.left) - height(node.right);
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static long toMinute(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    // an event that starts and ends in the same minute still takes up that minute
+    private static long endMinute(Event event) {
+        return Math.max(toMinute(event.getEndTime()), toMinute(event.getStartTime()) + 1);
+    }
+}
@@ -0,0 +1,265 @@
+package tasklist;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * This InvertedIndex.java maps every normalized word of a task description to the sorted ids of the tasks
+ * that contain it, so find no longer lowercases and scans every description on each query.
+ * Every query word matches each indexed word that contains it, so "book" finds "book", "books" and "notebook"
+ * just like a substring search, and partial words like "groc" keep working; multi-word queries intersect those matches.
+ * The result can hold tasks where the words are not next to each other, callers that need the exact phrase
+ * check the few candidates with contains, see TaskList#searchTasks.
+ * A query word is looked up in the hash map directly; the other words containing it are found through the trigrams
+ * (runs of three characters) of the words, so only the words sharing its rarest trigram are checked with contains.
+ * Only a query word shorter than a trigram is checked against every indexed word.
+ */
+
+public class InvertedIndex {
+    private static final int GRAM_LENGTH = 3;
+
+    private final HashMap<String, PostingList> postings = new HashMap<>();
+    // the posting lists of the words that have each trigram; a plain list, since it only has to be searched
+    // when a word leaves the index, once the last task with it is gone
+    private final HashMap<String, ArrayList<PostingList>> wordsByGram = new HashMap<>();
+    // every word and its posting list side by side in arrays as well, walked for the fragments too short for a trigram
+    private String[] words = new String[16];
+    private PostingList[] wordPostings = new PostingList[16];
+    private int wordCount;
+
+    public void add(int id, String description) {
+        for (String token : tokenize(description)) {
+            PostingList list = postings.get(token);
+            if (list == null) {
+                list = new PostingList(token);
+                postings.put(token, list);
+                addWord(list);
+            }
+            list.add(id);
+        }
+    }
+
+    public void remove(int id, String description) {
+        for (String token : tokenize(description)) {
+            PostingList list = postings.get(token);
+            if (list != null && list.remove(id) && list.size == 0) {
+                postings.remove(token);
+                removeWord(list);
+            }
+        }
+    }
+
+    private void addWord(PostingList list) {
+        String word = list.word;
+        if (wordCount == words.length) {
+            words = Arrays.copyOf(words, wordCount * 2);
+            wordPostings = Arrays.copyOf(wordPostings, wordCount * 2);
+        }
+        list.slot = wordCount;
+        words[wordCount] = word;
+        wordPostings[wordCount] = list;
+        wordCount++;
+        for (int i = 0; i + GRAM_LENGTH <= word.length(); i++) {
+            ArrayList<PostingList> lists = wordsByGram.computeIfAbsent(word.substring(i, i + GRAM_LENGTH),
+                    gram -> new ArrayList<>(2));
+            // a word like "banana" has the same trigram twice
+            if (lists.isEmpty() || lists.get(lists.size() - 1) != list) {
+                lists.add(list);
+            }
+        }
+    }
+
+    // the last word takes the place of the removed one
+    private void removeWord(PostingList list) {
+        int slot = list.slot;
+        wordCount--;
+        words[slot] = words[wordCount];
+        wordPostings[slot] = wordPostings[wordCount];
+        wordPostings[slot].slot = slot;
+        words[wordCount] = null;
+        wordPostings[wordCount] = null;
+        String word = list.word;
+        for (int i = 0; i + GRAM_LENGTH <= word.length(); i++) {
+            String gram = word.substring(i, i + GRAM_LENGTH);
+            ArrayList<PostingList> lists = wordsByGram.get(gram);
+            if (lists != null && lists.remove(list) && lists.isEmpty()) {
+                wordsByGram.remove(gram);
+            }
+        }
+    }
+
+    /**
+     * Finds the tasks whose descriptions have, for every word of the query, a word containing it.
+     * That includes every description containing the query as a substring, and maybe a few more.
+     *
+     * @param query the words to search for
+     * @return the matching task ids in ascending order, or null if the query has no words to index on
+     */
+    public int[] search(String query) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+
+        int[] result = null;
+        for (String token : tokens) {
+            int[] matches = lookup(token);
+            result = result == null ? matches : intersect(result, matches);
+            if (result.length == 0) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    // the union of every indexed word containing the fragment, the word itself included
+    private int[] lookup(String token) {
+        List<PostingList> matches = new ArrayList<>();
+        if (token.length() < GRAM_LENGTH) {
+            for (int i = 0; i < wordCount; i++) {
+                if (words[i].contains(token)) {
+                    matches.add(wordPostings[i]);
+                }
+            }
+            return union(matches);
+        }
+        // every word containing the token has all of its trigrams, so the rarest one gives the fewest candidates
+        ArrayList<PostingList> candidates = null;
+        for (int i = 0; i + GRAM_LENGTH <= token.length(); i++) {
+            ArrayList<PostingList> lists = wordsByGram.get(token.substring(i, i + GRAM_LENGTH));
+            if (lists == null) {
+                return new int[0];
+            }
+            if (candidates == null || lists.size() < candidates.size()) {
+                candidates = lists;
+            }
+        }
+        PostingList exact = postings.get(token);
+        if (exact != null && candidates.size() == 1) {
+            // no other word has that trigram, so the word itself is the only match
+            return exact.toArray();
+        }
+        for (PostingList list : candidates) {
+            if (list.word.contains(token)) {
+                matches.add(list);
+            }
+        }
+        return union(matches);
+    }
+
+    // the ids of the matched words in ascending order, each id once
+    private static int[] union(List<PostingList> matches) {
+        if (matches.size() == 1) {
+            return matches.get(0).toArray();
+        }
+        // a short fragment can be in many words, so their ids are gathered and sorted once instead of merged one by one
+        int size = 0;
+        for (PostingList list : matches) {
+            size += list.size;
+        }
+        int[] union = new int[size];
+        size = 0;
+        for (PostingList list : matches) {
+            System.arraycopy(list.ids, 0, union, size, list.size);
+            size += list.size;
+        }
+        Arrays.sort(union);
+        return Arrays.copyOf(union, removeDuplicates(union, size));
+    }
+
+    private static int[] intersect(int[] left, int[] right) {
+        int[] result = new int[Math.min(left.length, right.length)];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < left.length && j < right.length) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                result[size++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    // squeezes out repeated ids of a sorted array, returns how many are left
+    private static int removeDuplicates(int[] ids, int size) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (kept == 0 || ids[i] != ids[kept - 1]) {
+                ids[kept++] = ids[i];
+            }
+        }
+        return kept;
+    }
+
+    // splits on anything that is not a letter or digit and lowercases, each word is returned once
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean isWordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (isWordChar && start < 0) {
+                start = i;
+            } else if (!isWordChar && start >= 0) {
+                String token = text.substring(start, i).toLowerCase();
+                if (!tokens.contains(token)) {
+                    tokens.add(token);
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    // a growable sorted array of the ids of the tasks with one word
+    private static class PostingList {
+        private final String word;
+        private int[] ids = new int[4];
+        private int size;
+        // where this list is in the wordPostings array
+        private int slot;
+
+        PostingList(String word) {
+            this.word = word;
+        }
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            // ids are handed out in increasing order, so this is almost always a plain append
+            int position = size;
+            if (size > 0 && ids[size - 1] >= id) {
+                position = Arrays.binarySearch(ids, 0, size, id);
+                if (position >= 0) {
+                    return;
+                }
+                position = -position - 1;
+                System.arraycopy(ids, position, ids, position + 1, size - position);
+            }
+            ids[position] = id;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+            return true;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+}
@@ -1,27 +1,38 @@
 package tasklist;
 
 import java.util.*;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 
 /**
  * This class represents a generic task. Specific task types like Event, Todo, and Deadline
  * inherit from this class to share common features and behaviors.
  * A task can either be completed or still pending.
+ * A task is never changed once it is built: a task read from a file is built with its saved id and done state,
+ * and marking a task or giving it an id makes a copy (see {@link #withDone} and {@link #withId}),
+ * so older versions of a {@link TaskList} (kept for undo, or handed to readers) still show the task as it was.
  */
 
-public abstract class Task {
+public abstract class Task implements Cloneable {
     protected String description;
-    public boolean isDone;
+    // not final only so that withDone and withId can set them on a fresh copy
+    private boolean isDone;
+    // handed out by the TaskList this task belongs to, increasing in list order and saved with the task
+    private int id;
+    // the line toString rendered the first time, see toString
+    private volatile String renderedLine;
 
     /**
      * Constructor to create a task with a given description.
-     * By default, a new task is marked as not done.
+     * By default, a new task is marked as not done, and has no id until it is added to a TaskList.
      */
     public Task(String desc) {
+        this(desc, 0, false);
+    }
+
+    // constructor to create a task as it was saved, with its id and done state
+    public Task(String desc, int id, boolean isDone) {
         this.description = desc;
-        this.isDone = false;
+        this.id = id;
+        this.isDone = isDone;
     }
 
     /**
@@ -32,74 +43,12 @@ public abstract class Task {
      * @return the corresponding Task object
      */
     public static Task parse(String line) {
-        // commenting out the debugging print statements in the parse function below
-        // System.out.println("Parsing line: " + line);
-        if (line.startsWith("[T]")) {
-            return parseTodo(line);
-        } else if (line.startsWith("[D]")) {
-            return parseDeadline(line);
-        } else if (line.startsWith("[E]")) {
-            return parseEvent(line);
-        }
-        throw new IllegalArgumentException("Unknown task format, please try again ❌: " + line);
-    }
-
-    // parses a To do task from a string
-    private static Todo parseTodo(String line) {
-        boolean isDone = line.charAt(4) == 'X';
-        String description = line.substring(7).trim();
-        // System.out.println("Description: " + description);
-        Todo todo = new Todo(description);
-        if (isDone) {
-            todo.markAsDone();
-        }
-        return todo;
+        return TaskCodec.decode(line);
     }
 
-    // parses a Deadline task from a string
-    private static Deadline parseDeadline(String line) {
-        boolean isDone = line.charAt(4) == 'X';
-        String[] parts = line.substring(7).split(" \\(by: ");
-        String description = parts[0].trim();
-        String deadlineDateString = parts[1].substring(0, parts[1].length() - 1).trim();
-        // System.out.println("Description: " + description);
-        // System.out.println("Deadline Date: " + deadlineDate);
-        try {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
-            LocalDateTime parsedDeadlineDate = LocalDateTime.parse(deadlineDateString, formatter);
-            Deadline deadline = new Deadline(description, parsedDeadlineDate);
-            if (isDone) {
-                deadline.markAsDone();
-            }
-            return deadline;
-        } catch (DateTimeParseException e) {
-            throw new IllegalArgumentException("Invalid date format in task file: " + deadlineDateString, e);
-        }
-    }
-
-    // parses an Event task from a string
-    private static Event parseEvent(String line) {
-        boolean isDone = line.charAt(4) == 'X';
-        // this is used to split the line into parts based on the "from" and "to" keywords
-        String[] parts = line.substring(7).split(" \\(from: | to: ");
-
-        // System.out.println("Raw parts: " + Arrays.toString(parts));
-
-        // used to extract the description, start, and end time for events
-        String description = parts[0].trim();
-        String start = parts[1].trim().replace(",", "");
-        // remove any extra commas, faced error for displaying task list when ending the program and starting again
-        String end = parts[2].substring(0, parts[2].length() - 1).trim().replace(",", "");
-
-        // System.out.println("Description: " + description);
-        // System.out.println("Event Start: " + start);
-        // System.out.println("Event End: " + end);
-
-        Event event = new Event(description, start, end);
-        if (isDone) {
-            event.markAsDone();
-        }
-        return event;
+    // 0 for a task that is not in a TaskList yet and was not loaded with a saved id
+    public int getId() {
+        return id;
     }
 
     public String getDescription() {
@@ -115,32 +64,71 @@ public abstract class Task {
         return isDone ? "X" : " ";
     }
 
-    public void markAsDone() {
-        this.isDone = true;
+    /**
+     * Returns a copy of this task with the same id and the given done state, or this task if it already has it.
+     * The copy shares everything else with this task, so it costs one small object whatever the kind of task.
+     */
+    public Task withDone(boolean isDone) {
+        return this.isDone == isDone ? this : copy(id, isDone);
     }
 
-    public void markAsNotDone() {
-        this.isDone = false;
+    // returns a copy of this task with the given id, or this task if it already has it, e.g. as a TaskList adds it
+    public Task withId(int id) {
+        return this.id == id ? this : copy(id, isDone);
     }
 
-    // these method can be overridden by subclasses to return specific task details
-    public String getTaskStorageString(){
-        // returns only the description when saving to file
-        return description;
+    private Task copy(int id, boolean isDone) {
+        try {
+            Task copy = (Task) super.clone();
+            copy.id = id;
+            copy.isDone = isDone;
+            copy.renderedLine = null;
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    // the line this task is saved as in the task file
+    public String getTaskStorageString() {
+        return TaskCodec.toStorageString(this);
     }
 
     public abstract String getDetails();
 
+    /**
+     * Returns the task as it is shown in listings, e.g. "[D][X] return book (by: Dec 2 2019, 6:00 PM)".
+     * The line is rendered once and cached, since a task never changes; a marked copy renders its own line.
+     */
     @Override
     public String toString() {
-        // format task output with type, status, description, and details
-        String doneMark = isDone ? "X" : " ";
-        return String.format("[%s][%s] %s %s", getType(), doneMark, getDescription(), getDetails()).trim();
+        String line = renderedLine;
+        if (line == null) {
+            line = render();
+            renderedLine = line;
+        }
+        return line;
+    }
+
+    // format task output with type, status, description, and details
+    private String render() {
+        String details = getDetails();
+        StringBuilder line = new StringBuilder(description.length() + details.length() + 8);
+        line.append('[').append(getType()).append("][").append(getStatusIcon()).append("] ").append(getDescription());
+        if (!details.isEmpty()) {
+            line.append(' ').append(details);
+        }
+        return line.toString().trim();
     }
 
     // returns the type of the task, to be defined in subclasses
     public abstract String getType();
 
+    /**
+     * Two tasks are equal when they are the same kind of task with the same content.
+     * The done state and id are left out on purpose: a marked copy replaces the task in the hash index,
+     * and a task does not stop being a duplicate just because one copy is marked as done.
+     */
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
@@ -152,6 +140,6 @@ public abstract class Task {
 
     @Override
     public int hashCode() {
-        return description.hashCode();
+        return Objects.hash(getType(), description);
     }
 }
@@ -0,0 +1,58 @@
+package tasklist;
+
+/**
+ * This TaskChange.java describes one change made to a {@link TaskList} that can be undone and redone:
+ * the kind of change, the task as it was before and after it, and where the task sits in the list.
+ * The task list keeps the version of the list from before and after the change with it, see {@link TaskList#undo}.
+ */
+
+public class TaskChange {
+    public enum Kind {
+        ADDED,
+        REMOVED,
+        STATUS_CHANGED
+    }
+
+    private final Kind kind;
+    // null for an added task
+    private final Task oldTask;
+    // null for a removed task
+    private final Task newTask;
+    private final TaskTree before;
+    private final TaskTree after;
+
+    TaskChange(Kind kind, Task oldTask, Task newTask, TaskTree before, TaskTree after) {
+        this.kind = kind;
+        this.oldTask = oldTask;
+        this.newTask = newTask;
+        this.before = before;
+        this.after = after;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    // the task before the change, null if the change added it
+    public Task getOldTask() {
+        return oldTask;
+    }
+
+    // the task after the change, null if the change removed it
+    public Task getNewTask() {
+        return newTask;
+    }
+
+    TaskTree getBefore() {
+        return before;
+    }
+
+    TaskTree getAfter() {
+        return after;
+    }
+
+    // the id of the task that changed
+    int getTaskId() {
+        return newTask != null ? newTask.getId() : oldTask.getId();
+    }
+}
@@ -0,0 +1,304 @@
+package tasklist;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * This TaskCodec.java is the one place that turns tasks into lines of the text task file and back.
+ * Storage, the journal, TaskList and Parser all go through it, so the format is only written down once:
+ *   #id [T][X] description
+ *   #id [D][X] description (by: yyyy-MM-dd HH:mm)
+ *   #id [E][X] description (from: start, to: end)
+ * The "#id " prefix is left out for tasks that have no id yet, and lines without it (from files written
+ * before tasks had ids) still load, the TaskList then gives those tasks new ids.
+ * Lines are scanned by index instead of with regex, dates are read and written digit by digit,
+ * and an instance reuses its buffers so writing a whole file does not build a String per task.
+ * An instance is not thread-safe, the static methods are.
+ */
+
+public class TaskCodec {
+    // only used for years outside 0000-9999, which the hand-written path does not cover
+    private static final DateTimeFormatter STORAGE_DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private static final String BY_MARKER = " (by: ";
+    private static final String FROM_MARKER = " (from: ";
+    private static final String TO_MARKER = " to: ";
+    // "[T][X] " comes before the description
+    private static final int DESCRIPTION_OFFSET = 7;
+
+    private final StringBuilder buffer = new StringBuilder(128);
+    private char[] chars = new char[128];
+
+    /**
+     * Encodes the task into the reused buffer.
+     *
+     * @return the buffer holding the line without a newline, only valid until the next call
+     */
+    public CharSequence encode(Task task) {
+        buffer.setLength(0);
+        appendTo(task, buffer);
+        return buffer;
+    }
+
+    // writes the task as one line, newline included, without creating a String for it
+    public void write(Task task, Writer out) throws IOException {
+        buffer.setLength(0);
+        appendTo(task, buffer);
+        buffer.append('\n');
+        int length = buffer.length();
+        if (chars.length < length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+        }
+        buffer.getChars(0, length, chars, 0);
+        out.write(chars, 0, length);
+    }
+
+    // the line for the task, for callers that need it as a String
+    public static String toStorageString(Task task) {
+        StringBuilder line = new StringBuilder(64);
+        appendTo(task, line);
+        return line.toString();
+    }
+
+    public static void appendTo(Task task, StringBuilder out) {
+        if (task.getId() > 0) {
+            out.append('#').append(task.getId()).append(' ');
+        }
+        out.append('[').append(task.getType()).append("][").append(task.isDone() ? 'X' : ' ').append("] ");
+        out.append(task.getDescription());
+        if (task instanceof Deadline) {
+            out.append(BY_MARKER);
+            appendDateTime(((Deadline) task).getDeadlineDate(), out);
+            out.append(')');
+        } else if (task instanceof Event) {
+            Event event = (Event) task;
+            out.append(FROM_MARKER).append(event.getEventStart()).append(',').append(TO_MARKER)
+                    .append(event.getEventEnd()).append(')');
+        }
+    }
+
+    // appends the time as yyyy-MM-dd HH:mm
+    public static void appendDateTime(LocalDateTime dateTime, StringBuilder out) {
+        int year = dateTime.getYear();
+        if (year < 0 || year > 9999) {
+            STORAGE_DATE_TIME_FORMAT.formatTo(dateTime, out);
+            return;
+        }
+        appendDigits(year, 4, out);
+        out.append('-');
+        appendDigits(dateTime.getMonthValue(), 2, out);
+        out.append('-');
+        appendDigits(dateTime.getDayOfMonth(), 2, out);
+        out.append(' ');
+        appendDigits(dateTime.getHour(), 2, out);
+        out.append(':');
+        appendDigits(dateTime.getMinute(), 2, out);
+    }
+
+    private static void appendDigits(int value, int width, StringBuilder out) {
+        for (int divisor = pow10(width - 1); divisor > 0; divisor /= 10) {
+            out.append((char) ('0' + value / divisor % 10));
+        }
+    }
+
+    private static int pow10(int exponent) {
+        int result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= 10;
+        }
+        return result;
+    }
+
+    public static Task decode(String line) {
+        return decode(line, 0, line.length());
+    }
+
+    /**
+     * Decodes the task stored in line[start, end), so callers can skip a prefix without copying the line.
+     *
+     * @throws IllegalArgumentException if the line is not a task in the text format
+     */
+    public static Task decode(String line, int start, int end) {
+        int id = 0;
+        if (start < end && line.charAt(start) == '#') {
+            int idEnd = line.indexOf(' ', start);
+            int digits = idEnd - start - 1;
+            id = idEnd < 0 || idEnd > end || digits < 1 || digits > 9 ? -1 : readNumber(line, start + 1, digits);
+            if (id <= 0) {
+                throw unknownFormat(line, start, end);
+            }
+            start = idEnd + 1;
+        }
+        if (end - start < DESCRIPTION_OFFSET - 1 || line.charAt(start) != '[' || line.charAt(start + 2) != ']'
+                || line.charAt(start + 3) != '[' || line.charAt(start + 5) != ']') {
+            throw unknownFormat(line, start, end);
+        }
+        boolean isDone = line.charAt(start + 4) == 'X';
+        int descriptionStart = Math.min(start + DESCRIPTION_OFFSET, end);
+
+        Task task;
+        switch (line.charAt(start + 1)) {
+            case 'T':
+                task = new Todo(trimmed(line, descriptionStart, end), id, isDone);
+                break;
+            case 'D':
+                task = decodeDeadline(line, start, descriptionStart, end, id, isDone);
+                break;
+            case 'E':
+                task = decodeEvent(line, start, descriptionStart, end, id, isDone);
+                break;
+            default:
+                throw unknownFormat(line, start, end);
+        }
+        return task;
+    }
+
+    private static Deadline decodeDeadline(String line, int start, int descriptionStart, int end, int id,
+            boolean isDone) {
+        int closing = lastNonSpace(line, descriptionStart, end);
+        int byIndex = line.lastIndexOf(BY_MARKER, closing - BY_MARKER.length());
+        if (closing < 0 || line.charAt(closing) != ')' || byIndex < descriptionStart) {
+            throw unknownFormat(line, start, end);
+        }
+        try {
+            LocalDateTime deadlineDate = parseDateTime(line, byIndex + BY_MARKER.length(), closing);
+            return new Deadline(trimmed(line, descriptionStart, byIndex), deadlineDate, id, isDone);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date format in task file: "
+                    + trimmed(line, byIndex + BY_MARKER.length(), closing), e);
+        }
+    }
+
+    private static Event decodeEvent(String line, int start, int descriptionStart, int end, int id, boolean isDone) {
+        int closing = lastNonSpace(line, descriptionStart, end);
+        int fromIndex = line.indexOf(FROM_MARKER, descriptionStart);
+        int startBegin = fromIndex + FROM_MARKER.length();
+        int toIndex = fromIndex < 0 ? -1 : line.indexOf(TO_MARKER, startBegin);
+        if (closing < 0 || line.charAt(closing) != ')' || fromIndex < 0 || toIndex < 0 || toIndex > closing) {
+            throw unknownFormat(line, start, end);
+        }
+        // the start is followed by the comma of ", to: "
+        int startEnd = lastNonSpace(line, startBegin, toIndex);
+        if (startEnd >= 0 && line.charAt(startEnd) == ',') {
+            startEnd--;
+        }
+        String eventStart = trimmed(line, startBegin, startEnd + 1);
+        String eventEnd = trimmed(line, toIndex + TO_MARKER.length(), closing);
+        return new Event(trimmed(line, descriptionStart, fromIndex), eventStart, eventEnd, id, isDone);
+    }
+
+    /**
+     * Parses "yyyy-MM-dd HH:mm". A 'T' in place of the space is accepted as well,
+     * since older versions saved deadlines with LocalDateTime.toString().
+     */
+    public static LocalDateTime parseDateTime(CharSequence text) {
+        return parseDateTime(text, 0, text.length());
+    }
+
+    private static LocalDateTime parseDateTime(CharSequence text, int start, int end) {
+        start = skipSpaces(text, start, end);
+        end = trimEnd(text, start, end);
+        if (end - start != "yyyy-MM-dd HH:mm".length()
+                || (text.charAt(start + 10) != ' ' && text.charAt(start + 10) != 'T')
+                || text.charAt(start + 13) != ':') {
+            throw invalidDate(text, start, end, null);
+        }
+        LocalDate date = parseDate(text, start, start + 10);
+        try {
+            return date.atTime(readNumber(text, start + 11, 2), readNumber(text, start + 14, 2));
+        } catch (DateTimeException e) {
+            throw invalidDate(text, start, end, e);
+        }
+    }
+
+    // parses "yyyy-MM-dd"
+    public static LocalDate parseDate(CharSequence text) {
+        return parseDate(text, 0, text.length());
+    }
+
+    private static LocalDate parseDate(CharSequence text, int start, int end) {
+        start = skipSpaces(text, start, end);
+        end = trimEnd(text, start, end);
+        if (end - start != "yyyy-MM-dd".length() || text.charAt(start + 4) != '-' || text.charAt(start + 7) != '-') {
+            throw invalidDate(text, start, end, null);
+        }
+        int year = readNumber(text, start, 4);
+        int month = readNumber(text, start + 5, 2);
+        int day = readNumber(text, start + 8, 2);
+        if (year < 0 || month < 0 || day < 0) {
+            throw invalidDate(text, start, end, null);
+        }
+        try {
+            return LocalDate.of(year, month, day);
+        } catch (DateTimeException e) {
+            throw invalidDate(text, start, end, e);
+        }
+    }
+
+    // parses "HH:mm"
+    public static LocalTime parseTime(CharSequence text) {
+        int start = skipSpaces(text, 0, text.length());
+        int end = trimEnd(text, start, text.length());
+        if (end - start != "HH:mm".length() || text.charAt(start + 2) != ':') {
+            throw invalidDate(text, start, end, null);
+        }
+        try {
+            return LocalTime.of(readNumber(text, start, 2), readNumber(text, start + 3, 2));
+        } catch (DateTimeException e) {
+            throw invalidDate(text, start, end, e);
+        }
+    }
+
+    // reads a fixed number of digits, returns -1 if any of them is not a digit
+    private static int readNumber(CharSequence text, int start, int digits) {
+        int value = 0;
+        for (int i = start; i < start + digits; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static DateTimeParseException invalidDate(CharSequence text, int start, int end, Throwable cause) {
+        String value = text.subSequence(start, Math.max(start, end)).toString();
+        return new DateTimeParseException("Text '" + value + "' could not be parsed", value, 0, cause);
+    }
+
+    private static IllegalArgumentException unknownFormat(String line, int start, int end) {
+        return new IllegalArgumentException("Unknown task format, please try again ❌: " + line.substring(start, end));
+    }
+
+    private static String trimmed(String line, int start, int end) {
+        start = skipSpaces(line, start, end);
+        return line.substring(start, trimEnd(line, start, end));
+    }
+
+    private static int skipSpaces(CharSequence text, int start, int end) {
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(CharSequence text, int start, int end) {
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    // index of the last non-blank character in [start, end), or -1 if there is none
+    private static int lastNonSpace(CharSequence text, int start, int end) {
+        int last = trimEnd(text, start, end) - 1;
+        return last >= start ? last : -1;
+    }
+}
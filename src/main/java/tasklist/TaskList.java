@@ -1,203 +1,780 @@
 package tasklist;
 
-import java.io.*;
-import java.time.format.*;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import ui.Ui;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
 import java.time.*;
 
 /**
  * This Tasklist.java class manages a list of tasks. It allows you to add, remove, and mark tasks as done.
- * Tasks can be saved to and loaded from a file, making it easy to persist task data between program runs.
+ * Tasks can be saved to and loaded from a file through storage.Storage, making it easy to persist task data between program runs.
+ * Every task has an id that stays the same for as long as the task exists and is saved with it.
+ * The tasks live in an immutable order-statistic tree keyed by id ({@link TaskTree}), so finding the n-th task,
+ * adding and deleting all take O(log n) instead of shifting an array.
+ * It is safe to share between threads: writes are serialized by a lock and publish a new tree instead of
+ * changing the old one, so list, size and get read the latest tree without locking and always see a consistent list.
+ * Queries that go through the indexes (find, due, events, filtered list) share a read lock that only waits for a running write.
+ * The saved tasks can also be loaded on a background thread (see {@link #loadInBackground}): tasks added meanwhile
+ * are queued and added after the saved ones, and everything that reads or changes the list waits until they are in.
+ * Since every change only makes a new tree next to the old one, the tree from before and after each change is kept
+ * (sharing all but O(log n) nodes with its neighbours), and undo and redo just publish one of them again and fix the
+ * indexes for the one task that changed. Every author (see {@link #runAs}) has a history of its own, and undo and redo
+ * only go through the history of whoever asks, so clients sharing the list never take back each other's changes.
  */
 
 public class TaskList {
-    private ArrayList<Task> taskLists;
-    private Ui ui;
+    // how many changes each author can undo (or redo), their oldest one is forgotten past that
+    private static final int HISTORY_LIMIT = 100;
+
+    // never changed after it is published, readers take whatever tree is current
+    private volatile TaskTree tasks;
+    // a subclass that keeps state of its own, e.g. the file of a MappedTaskList, guards it with this lock as well
+    protected final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // counts how often each task occurs, so duplicates are found with one hash lookup instead of a scan
+    private final HashMap<Task, Integer> taskIndex;
+    // word index over the descriptions for find, keyed by task id
+    private final InvertedIndex wordIndex;
+    // deadlines sorted by due time for the due and overdue commands
+    private final DeadlineIndex deadlineIndex;
+    // events with parsed times, for overlap and conflict queries
+    private final EventIntervalTree eventIndex;
+    // ids of the tasks of each type and of the done ones, so list filters are a few bitset operations
+    private final BitSet todoIds = new BitSet();
+    private final BitSet deadlineIds = new BitSet();
+    private final BitSet eventIds = new BitSet();
+    private final BitSet doneIds = new BitSet();
+    private int nextId = 1;
+    private TaskListListener listener;
+    // released once the saved tasks loaded in the background are in, null when nothing is loading
+    private volatile CountDownLatch loading;
+    private volatile IntSupplier loadProgress;
+    // tasks added while loading, and the ones of them that turned out to be duplicates of saved tasks
+    private final List<Task> pendingTasks = new ArrayList<>();
+    private final List<Object> pendingAuthors = new ArrayList<>();
+    private final List<Task> droppedDuplicates = new ArrayList<>();
+    // the history of every author, weak so the history of an author that is gone (e.g. the Parser of a client that
+    // disconnected) goes with it; changes made outside of runAs are kept under null
+    private final WeakHashMap<Object, History> histories = new WeakHashMap<>();
+    // who the changes made on the current thread are by, see runAs
+    private final ThreadLocal<Object> author = new ThreadLocal<>();
 
     // this creates a new task list. (starts empty)
     public TaskList() {
-        this.taskLists = new ArrayList<>();
-        this.ui = new Ui();
+        this.tasks = TaskTree.EMPTY;
+        this.taskIndex = new HashMap<>();
+        this.wordIndex = new InvertedIndex();
+        this.deadlineIndex = new DeadlineIndex();
+        this.eventIndex = new EventIntervalTree();
+    }
+
+    /**
+     * Runs a command with every change it makes credited to the given author, and its undo and redo going only
+     * through that author's changes; e.g. SunnyServer gives every client its own Parser, which is the author.
+     * Changes made outside of runAs belong to no author, and so do undo and redo called outside of it.
+     */
+    public <T> T runAs(Object author, Supplier<T> command) {
+        Object outer = this.author.get();
+        this.author.set(author);
+        try {
+            return command.get();
+        } finally {
+            this.author.set(outer);
+        }
+    }
+
+    // false for a list that keeps no older versions, whose undo and redo are not to be called
+    public boolean supportsUndo() {
+        return true;
     }
 
-    // this is a constructor for loading tasks from a file at the specified path
-    public TaskList(String filePath) {
-        this.taskLists = new ArrayList<>();
-        this.ui = new Ui();
-        loadTasksFromFile(filePath);
+    // true for a list that writes every change to its own file, which takes no listener
+    public boolean writesOwnChanges() {
+        return false;
     }
 
-    public boolean addTask(Task task) {
+    // the listener hears about every change while the write lock is held, so it sees them in order
+    public void setListener(TaskListListener listener) {
+        lock.writeLock().lock();
+        try {
+            this.listener = listener;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a copy of the task with the next id, unless an equal task is already in the list;
+     * the caller reports duplicates to the user.
+     * While the saved tasks are still loading the task is queued instead, and a copy with its id is only added
+     * once they are in, see {@link #loadInBackground}.
+     *
+     * @return the task as it is in the list, the given task itself while it is queued, or null for a duplicate
+     */
+    public Task addTask(Task task) {
+        lock.writeLock().lock();
+        try {
+            if (loading != null) {
+                pendingTasks.add(task);
+                pendingAuthors.add(author.get());
+                return task;
+            }
+            return add(task);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Task add(Task task) {
         if (detectDuplicates(task)) {
-            ui.displayErrorMessage("This task is already in your task list. Task not added. ❌");
-            return false;  // Do not add task if it's a duplicate
-        } else {
-            taskLists.add(task);
-            return true;  // Task added successfully
+            return null;  // Do not add task if it's a duplicate
         }
+        Task addedTask = task.withId(nextId++);
+        indexTask(addedTask);
+        TaskTree before = tasks;
+        tasks = tasks.insert(addedTask);
+        remember(new TaskChange(TaskChange.Kind.ADDED, null, addedTask, before, tasks));
+        if (listener != null) {
+            listener.taskAdded(addedTask);
+        }
+        return addedTask;  // Task added successfully
     }
 
-    private boolean detectDuplicates(Task task) {
-        for (Task existingTask : taskLists) {
-            if (existingTask.equals(task)) {
-                return true;
+    /**
+     * Loads the saved tasks on a new thread and returns at once, so commands can be typed while a big file loads.
+     * Tasks added in the meantime are queued and added right after the saved tasks, those that turn out to be
+     * duplicates are left out (see {@link #takeDroppedDuplicates}). Every other method waits until the load is done.
+     *
+     * @param loader reads the saved tasks, e.g. Storage::loadTasks
+     * @param progress how far the loader is, in percent
+     * @param savedNextId the lowest id never handed out before, read once the loader is done, e.g. Storage::getNextId
+     * @return completes with the number of saved tasks once they are in the list, or with the loader's exception
+     */
+    public CompletableFuture<Integer> loadInBackground(Callable<List<Task>> loader, IntSupplier progress,
+            IntSupplier savedNextId) {
+        CountDownLatch latch = new CountDownLatch(1);
+        loadProgress = progress;
+        loading = latch;
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        // not a daemon, so tasks queued before the program ends still reach the listener
+        Thread thread = new Thread(() -> {
+            List<Task> loadedTasks = List.of();
+            Exception failure = null;
+            try {
+                loadedTasks = loader.call();
+            } catch (Exception e) {
+                failure = e;
+            }
+            lock.writeLock().lock();
+            try {
+                addLoadedTasks(loadedTasks, failure == null ? savedNextId.getAsInt() : 1);
+                for (int i = 0; i < pendingTasks.size(); i++) {
+                    Task task = pendingTasks.get(i);
+                    // credited to whoever typed it, so they can undo it
+                    author.set(pendingAuthors.get(i));
+                    if (add(task) == null) {
+                        droppedDuplicates.add(task);
+                    }
+                }
+            } catch (RuntimeException e) {
+                failure = failure == null ? e : failure;
+            } finally {
+                author.remove();
+                pendingTasks.clear();
+                pendingAuthors.clear();
+                loading = null;
+                lock.writeLock().unlock();
+                latch.countDown();
+            }
+            if (failure == null) {
+                result.complete(loadedTasks.size());
+            } else {
+                result.completeExceptionally(failure);
             }
+        }, "sunny-loader");
+        thread.start();
+        return result;
+    }
+
+    // true while the saved tasks are loading in the background
+    public boolean isLoading() {
+        return loading != null;
+    }
+
+    // how far the background load is, in percent; 100 when nothing is loading
+    public int getLoadProgress() {
+        IntSupplier progress = loadProgress;
+        return loading == null || progress == null ? 100 : Math.min(99, progress.getAsInt());
+    }
+
+    // the tasks added while loading that were already saved, and forgets them
+    public List<Task> takeDroppedDuplicates() {
+        lock.writeLock().lock();
+        try {
+            List<Task> dropped = new ArrayList<>(droppedDuplicates);
+            droppedDuplicates.clear();
+            return dropped;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Waits until the saved tasks loading in the background are in the list, returns at once when nothing is loading.
+     * The loading thread itself passes straight through, since it holds the write lock while it adds the queued tasks.
+     */
+    public void awaitLoaded() {
+        CountDownLatch latch = loading;
+        if (latch == null || lock.isWriteLockedByCurrentThread()) {
+            return;
+        }
+        boolean isInterrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                isInterrupted = true;
+            }
+        }
+        if (isInterrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Adds tasks loaded from storage as they are, keeping the indexes up to date.
+     * Saved ids are kept; tasks from files written before ids existed, or whose id would break the
+     * order of the list, are added as a copy with a new one.
+     */
+    public void addLoadedTasks(List<Task> loadedTasks) {
+        lock.writeLock().lock();
+        try {
+            List<Task> ordered = new ArrayList<>(tasks.asList());
+            int lastId = nextId - 1;
+            for (Task task : loadedTasks) {
+                if (task.getId() <= lastId) {
+                    task = task.withId(lastId + 1);
+                }
+                lastId = task.getId();
+                indexTask(task);
+                ordered.add(task);
+            }
+            nextId = lastId + 1;
+            tasks = TaskTree.of(ordered);
+            // the versions in the history do not have the loaded tasks
+            histories.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds tasks loaded from storage like addLoadedTasks(loadedTasks), and keeps the ids below savedNextId
+     * from being handed out again, since they belonged to tasks deleted before the last save.
+     */
+    public void addLoadedTasks(List<Task> loadedTasks, int savedNextId) {
+        lock.writeLock().lock();
+        try {
+            addLoadedTasks(loadedTasks);
+            reserveIdsBelow(savedNextId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces every task without an id (or with one out of order) by a copy with the next id, the same way
+     * addLoadedTasks does. Tasks after the last one with an id (e.g. lines added to the file by hand) get ids
+     * from nextId on, so they do not take the id of a deleted task. Only for tasks just read from a file.
+     *
+     * @param tasks a list that can be changed, the copies take the place of the tasks they replace
+     * @return true if any task got a new id
+     */
+    public static boolean assignMissingIds(List<Task> tasks, int nextId) {
+        int lastNumbered = -1;
+        int lastId = 0;
+        for (int i = 0; i < tasks.size(); i++) {
+            if (tasks.get(i).getId() > lastId) {
+                lastNumbered = i;
+                lastId = tasks.get(i).getId();
+            }
+        }
+        boolean isChanged = false;
+        lastId = 0;
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = tasks.get(i);
+            if (task.getId() <= lastId) {
+                task = task.withId((i > lastNumbered ? Math.max(lastId, nextId - 1) : lastId) + 1);
+                tasks.set(i, task);
+                isChanged = true;
+            }
+            lastId = task.getId();
+        }
+        return isChanged;
+    }
+
+    // ids handed out from now on are at least nextId, for storage that remembers ids of deleted tasks
+    protected void reserveIdsBelow(int nextId) {
+        lock.writeLock().lock();
+        try {
+            this.nextId = Math.max(this.nextId, nextId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean detectDuplicates(Task task) {
+        return taskIndex.containsKey(task);
+    }
+
+    private void indexTask(Task task) {
+        taskIndex.merge(task, 1, Integer::sum);
+        wordIndex.add(task.getId(), task.getDescription());
+        typeIds(task.getType()).set(task.getId());
+        doneIds.set(task.getId(), task.isDone());
+        if (task instanceof Deadline) {
+            deadlineIndex.add((Deadline) task);
+        } else if (task instanceof Event) {
+            eventIndex.add((Event) task);
+        }
+    }
+
+    private void unindexTask(Task task) {
+        taskIndex.computeIfPresent(task, (key, count) -> count == 1 ? null : count - 1);
+        wordIndex.remove(task.getId(), task.getDescription());
+        typeIds(task.getType()).clear(task.getId());
+        doneIds.clear(task.getId());
+        if (task instanceof Deadline) {
+            deadlineIndex.remove((Deadline) task);
+        } else if (task instanceof Event) {
+            eventIndex.remove((Event) task);
+        }
+    }
+
+    // the bitset of ids for a task type, "T", "D" or "E"
+    private BitSet typeIds(String type) {
+        switch (type) {
+            case "T":
+                return todoIds;
+            case "D":
+                return deadlineIds;
+            case "E":
+                return eventIds;
+            default:
+                throw new IllegalArgumentException("Unknown task type: " + type);
         }
-        return false;
     }
 
     // removes a task at a specific index from the list
     public Task removeTask(int index) {
-        return taskLists.remove(index);
+        awaitLoaded();
+        lock.writeLock().lock();
+        try {
+            Task removedTask = tasks.get(index);
+            remove(index, removedTask);
+            return removedTask;
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
-    public void markTaskAsDone(int index) {
-        taskLists.get(index).markAsDone();
+    // removes the task with the given id, returns it or null if there is no such task
+    public Task removeTaskById(int id) {
+        awaitLoaded();
+        lock.writeLock().lock();
+        try {
+            int index = tasks.positionOf(id);
+            if (index < 0) {
+                return null;
+            }
+            Task removedTask = tasks.get(index);
+            remove(index, removedTask);
+            return removedTask;
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
-    public ArrayList<Task> getTasks() {
-        return taskLists;
+    private void remove(int index, Task task) {
+        unindexTask(task);
+        TaskTree before = tasks;
+        tasks = tasks.remove(task.getId());
+        remember(new TaskChange(TaskChange.Kind.REMOVED, task, null, before, tasks));
+        if (listener != null) {
+            listener.taskRemoved(index, task);
+        }
     }
 
-    // this saves all tasks to a file
-    public void saveTasksToFile(String filePath) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
-            for (Task task : taskLists) {
-                writer.write(formatTaskForSaving(task));
-                writer.newLine();
-            }
-        } catch (IOException e) {
-            ui.displayErrorMessage("Oops, there was an error saving your tasks: " + e.getMessage());
+    /**
+     * Marks the task at the given index as done or not done, keeping the indexes that depend on it up to date.
+     *
+     * @return the task as it is in the list afterwards
+     */
+    public Task updateTaskStatus(int index, boolean isDone) {
+        awaitLoaded();
+        lock.writeLock().lock();
+        try {
+            Task task = tasks.get(index);
+            Task updatedTask = updateTaskStatus(task, isDone);
+            return updatedTask == null ? task : updatedTask;
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
     /**
-     * Formats a task as a string to be saved to a file.
+     * Marks the given task as done or not done, as long as it is still in the list.
+     * Callers that looked the task up earlier use this, so a task that moved in the meantime is still the one changed.
+     * The task itself is left as it is, a copy with the new status takes its place in the list.
      *
-     * @param task The task to format.
-     * @return A string representing the task in a file-friendly format.
+     * @return the copy in the list now, or null if the task already had the status or is no longer in the list
      */
-    private String formatTaskForSaving(Task task) {
-        if (task instanceof Todo) {
-            return String.format("[T][%s] %s", task.isDone() ? "X" : " ", task.getDescription());
-        } else if (task instanceof Deadline) {
-            Deadline deadline = (Deadline) task;
-            return String.format("[D][%s] %s (by: %s)", task.isDone() ? "X" : " ", task.getDescription(), deadline.getDeadlineDate());
+    public Task updateTaskStatus(Task task, boolean isDone) {
+        awaitLoaded();
+        lock.writeLock().lock();
+        try {
+            int index = indexOf(task);
+            if (index < 0 || task.isDone() == isDone) {
+                return null;
+            }
+            Task updatedTask = task.withDone(isDone);
+            TaskTree before = tasks;
+            reindexStatus(task, updatedTask);
+            tasks = tasks.insert(updatedTask);
+            remember(new TaskChange(TaskChange.Kind.STATUS_CHANGED, task, updatedTask, before, tasks));
+            if (listener != null) {
+                listener.taskStatusChanged(index, updatedTask);
+            }
+            return updatedTask;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // moves the indexes over to a copy of the task with another status, the word, type and duplicate ones stay as they are
+    private void reindexStatus(Task task, Task copy) {
+        doneIds.set(copy.getId(), copy.isDone());
+        if (task instanceof Deadline) {
+            deadlineIndex.updateStatus((Deadline) copy);
         } else if (task instanceof Event) {
-            Event event = (Event) task;
-            return String.format("[E][%s] %s (from: %s, to: %s)", task.isDone() ? "X" : " ", task.getDescription(), event.getEventStart(), event.getEventEnd());
+            eventIndex.remove((Event) task);
+            eventIndex.add((Event) copy);
         }
-        return "";
     }
 
-    // it loads tasks from a file, if the file is empty or doesn't exist, it starts with a fresh task list.
-    private void loadTasksFromFile(String filePath) {
-        File file = new File(filePath);
-        if (file.exists() && file.length() > 0) {
-            try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    Task task = parseTaskFromFile(line);
-                    taskLists.add(task);
-                }
-                ui.displaySuccessMessage("loaded saved tasks from sunny.txt. ✅");
-            } catch (IOException e) {
-                ui.displayErrorMessage("Oops, there was an error loading your tasks: " + e.getMessage());
+    // a new change forgets the undone ones of its author, they can no longer be redone on top of it
+    private void remember(TaskChange change) {
+        History history = histories.computeIfAbsent(author.get(), by -> new History());
+        history.redoable.clear();
+        history.addUndoable(change);
+    }
+
+    /**
+     * Takes back the latest change of the current author (see {@link #runAs}) that has not been undone yet.
+     * When nobody changed the list since, the version from before the change is published again; otherwise only
+     * the changed task is put back the way it was, leaving the later changes of others as they are.
+     * An undone add keeps its id, ids are never handed out twice.
+     *
+     * @return the change that was undone, or null if there is nothing to undo
+     */
+    public TaskChange undo() {
+        awaitLoaded();
+        lock.writeLock().lock();
+        try {
+            History history = histories.get(author.get());
+            TaskChange change = history == null ? null : history.undoable.pollLast();
+            if (change == null) {
+                return null;
+            }
+            // kept for redo before the listener is told, so an undo that could not be saved can still be redone
+            history.addRedoable(change);
+            putBack(change.getTaskId(), change.getOldTask(), tasks == change.getAfter() ? change.getBefore() : null);
+            return change;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Makes the latest undone change of the current author again, the same way undo takes it back.
+     *
+     * @return the change that was redone, or null if there is nothing to redo
+     */
+    public TaskChange redo() {
+        awaitLoaded();
+        lock.writeLock().lock();
+        try {
+            History history = histories.get(author.get());
+            TaskChange change = history == null ? null : history.redoable.pollLast();
+            if (change == null) {
+                return null;
+            }
+            history.addUndoable(change);
+            putBack(change.getTaskId(), change.getNewTask(), tasks == change.getBefore() ? change.getAfter() : null);
+            return change;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // the changes of one author that can be undone and the undone ones that can be redone, the latest last
+    private static class History {
+        private final ArrayDeque<TaskChange> undoable = new ArrayDeque<>();
+        private final ArrayDeque<TaskChange> redoable = new ArrayDeque<>();
+
+        void addUndoable(TaskChange change) {
+            addBounded(undoable, change);
+        }
+
+        void addRedoable(TaskChange change) {
+            addBounded(redoable, change);
+        }
+
+        private static void addBounded(ArrayDeque<TaskChange> changes, TaskChange change) {
+            changes.addLast(change);
+            if (changes.size() > HISTORY_LIMIT) {
+                changes.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * Makes the task with the given id the wanted version of it again, or takes it out of the list if that is null,
+     * and tells the listener like any other change. The version of the whole list is published when it is known to
+     * hold exactly that, otherwise the one task is changed in the current list; nothing happens if it already is so.
+     */
+    private void putBack(int id, Task wanted, TaskTree version) {
+        Task current = tasks.find(id);
+        if (current == wanted || current != null && wanted != null && current.isDone() == wanted.isDone()
+                && version == null) {
+            return;
+        }
+        if (wanted == null) {
+            int index = tasks.positionOf(id);
+            unindexTask(current);
+            tasks = version != null ? version : tasks.remove(id);
+            if (listener != null) {
+                listener.taskRemoved(index, current);
+            }
+        } else if (current == null) {
+            indexTask(wanted);
+            tasks = version != null ? version : tasks.insert(wanted);
+            if (listener != null) {
+                listener.taskRestored(tasks.positionOf(id), wanted);
             }
         } else {
-            // If file doesn't exist or is empty
-            ui.printMessage("No previous tasks found. Starting fresh. \uD83C\uDD95");
+            reindexStatus(current, wanted);
+            tasks = version != null ? version : tasks.insert(wanted);
+            if (listener != null) {
+                listener.taskStatusChanged(tasks.positionOf(id), wanted);
+            }
         }
     }
 
-    private String formatTaskForFile(Task task) {
-        if (task instanceof Todo) {
-            return String.format("[T][%s] %s", task.isDone() ? "X" : " ", task.getDescription());
-        } else if (task instanceof Deadline) {
-            Deadline deadline = (Deadline) task;
-            return String.format("[D][%s] %s (by: %s)", task.isDone() ? "X" : " ", task.getDescription(), deadline.getDeadlineDate());
-        } else if (task instanceof Event) {
-            Event event = (Event) task;
-            return String.format("[E][%s] %s (from: %s, to: %s)", task.isDone() ? "X" : " ", task.getDescription(), event.getEventStart(), event.getEventEnd());
+    // the position of the task in the list, or -1 if it is not in this list
+    private int indexOf(Task task) {
+        TaskTree current = tasks;
+        int index = current.positionOf(task.getId());
+        return index >= 0 && current.get(index) == task ? index : -1;
+    }
+
+    // deadlines due strictly before the given time, earliest first
+    public List<Deadline> getTasksDueBefore(LocalDateTime time) {
+        awaitLoaded();
+        lock.readLock().lock();
+        try {
+            return deadlineIndex.dueBefore(time);
+        } finally {
+            lock.readLock().unlock();
         }
-        return "";
     }
 
-    // parses a task from a file line and returns the corresponding task object.
-    private Task parseTaskFromFile(String line) {
-        if (line.startsWith("[T]")) {
-            return parseTodoTask(line);
-        } else if (line.startsWith("[D]")) {
-            return parseDeadlineTask(line);
-        } else if (line.startsWith("[E]")) {
-            return parseEventTask(line);
+    // deadlines due from start (inclusive) up to end (exclusive), earliest first
+    public List<Deadline> getTasksDueBetween(LocalDateTime start, LocalDateTime end) {
+        awaitLoaded();
+        lock.readLock().lock();
+        try {
+            return deadlineIndex.dueBetween(start, end);
+        } finally {
+            lock.readLock().unlock();
         }
-        throw new IllegalArgumentException("Unknown task format, please try again ❌: " + line);
     }
 
-    // parses a To do task from a file line
-    private Task parseTodoTask(String line) {
-        boolean isDone = line.charAt(4) == 'X';  // this is to check for 'X' for completed tasks
-        String description = line.substring(8).trim();
-        Todo todo = new Todo(description);
-        if (isDone) {
-            todo.markAsDone();
+    // deadlines that are past due and not done yet, earliest first
+    public List<Deadline> getOverdueTasks() {
+        awaitLoaded();
+        lock.readLock().lock();
+        try {
+            return deadlineIndex.overdue(LocalDateTime.now());
+        } finally {
+            lock.readLock().unlock();
         }
-        return todo;
     }
 
-    // parses a Deadline task from a file line
-    private Task parseDeadlineTask(String line) {
-        boolean isDone = line.charAt(4) == 'X';  // Check for 'X' for completed tasks
-        String[] parts = line.substring(8).split(" \\(by: ");
-        String description = parts[0].trim();
-        String deadlineDate = parts[1].substring(0, parts[1].length() - 1).trim();  // Remove closing ')'
+    // events with parsed times that overlap [start, end), ordered by start time
+    public List<Event> getEventsDuring(LocalDateTime start, LocalDateTime end) {
+        awaitLoaded();
+        lock.readLock().lock();
+        try {
+            return eventIndex.overlapping(start, end);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
 
+    // other events in the list whose times overlap the given event
+    public List<Event> getConflictingEvents(Event event) {
+        awaitLoaded();
+        lock.readLock().lock();
         try {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
-            LocalDateTime deadline = LocalDateTime.parse(deadlineDate, formatter);
-            Deadline task = new Deadline(description, deadline);
-            if (isDone) {
-                task.markAsDone();
+            return eventIndex.conflictsWith(event);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns one window of the tasks of the given type and done state, in list order.
+     * Without filters the window is read straight from the tree by position; with filters the matching ids
+     * come from the type and done bitsets, and only the tasks inside the window are looked up.
+     *
+     * @param type "T", "D" or "E", or null for every type
+     * @param isDone true for done tasks, false for pending ones, or null for both
+     * @param offset how many matching tasks to skip
+     * @param limit the most tasks to return
+     */
+    public TaskPage getTaskPage(String type, Boolean isDone, int offset, int limit) {
+        awaitLoaded();
+        lock.readLock().lock();
+        try {
+            TaskTree current = tasks;
+            if (type == null && isDone == null) {
+                int end = (int) Math.min(current.size(), (long) offset + limit);
+                int count = Math.max(0, end - offset);
+                List<Task> window = new ArrayList<>(count);
+                int[] positions = new int[count];
+                for (int i = 0; i < count; i++) {
+                    positions[i] = offset + i;
+                    window.add(current.get(offset + i));
+                }
+                return new TaskPage(window, positions, current.size());
+            }
+
+            BitSet matches;
+            if (type != null) {
+                matches = (BitSet) typeIds(type).clone();
+            } else {
+                matches = (BitSet) todoIds.clone();
+                matches.or(deadlineIds);
+                matches.or(eventIds);
             }
-            return task;
-        } catch (DateTimeParseException e) {
-            throw new IllegalArgumentException("Invalid date format: please try again ❌:" + deadlineDate);
+            if (isDone == Boolean.TRUE) {
+                matches.and(doneIds);
+            } else if (isDone == Boolean.FALSE) {
+                matches.andNot(doneIds);
+            }
+
+            int matchCount = matches.cardinality();
+            int id = matches.nextSetBit(0);
+            for (int skipped = 0; id >= 0 && skipped < offset; skipped++) {
+                id = matches.nextSetBit(id + 1);
+            }
+            int count = Math.min(limit, Math.max(0, matchCount - offset));
+            List<Task> window = new ArrayList<>(count);
+            int[] positions = new int[count];
+            for (int i = 0; i < count; i++) {
+                positions[i] = current.positionOf(id);
+                window.add(current.get(positions[i]));
+                id = matches.nextSetBit(id + 1);
+            }
+            return new TaskPage(window, positions, matchCount);
+        } finally {
+            lock.readLock().unlock();
         }
     }
 
-    // Parses an Event task from a file line
-    private Task parseEventTask(String line) {
-        boolean isDone = line.charAt(4) == 'X';  // check for 'X' for completed tasks
-        String[] parts = line.substring(8).split(" \\(from: | to: ");
-        String description = parts[0].trim();
-        String start = parts[1].trim();
-        String end = parts[2].substring(0, parts[2].length() - 1).trim();  // -1 is used to remove closing ')'
-        Event event = new Event(description, start, end);
-        if (isDone) {
-            event.markAsDone();
+    /**
+     * Returns the tasks as they are right now. The list is read-only and does not change afterwards,
+     * so it can be walked without holding any lock while other threads keep changing the task list.
+     */
+    public List<Task> getTasks() {
+        awaitLoaded();
+        return tasks.asList();
+    }
+
+    public Task getTask(int index) {
+        awaitLoaded();
+        return tasks.get(index);
+    }
+
+    // the task with the given id, or null if there is none
+    public Task getTaskById(int id) {
+        awaitLoaded();
+        return tasks.find(id);
+    }
+
+    public int size() {
+        awaitLoaded();
+        return tasks.size();
+    }
+
+    // the id the next added task gets; every id below it has been handed out already
+    public int getNextId() {
+        awaitLoaded();
+        lock.readLock().lock();
+        try {
+            return nextId;
+        } finally {
+            lock.readLock().unlock();
         }
-        return event;
     }
 
-    public void findTasks(String keyword) {
+    /**
+     * Finds the tasks whose descriptions contain the keyword, ignoring case, the same as a substring search.
+     * The word index narrows the list down to the tasks with every word of the keyword in some word,
+     * and only those are checked with contains, so a phrase like "return bo" still has to appear as it is.
+     * Keywords without any letters or digits (e.g. "!") fall back to a plain substring scan.
+     *
+     * @param keyword one or more words, partial words are allowed
+     * @return the matching tasks in list order
+     */
+    public ArrayList<Task> searchTasks(String keyword) {
+        awaitLoaded();
         ArrayList<Task> matchingTasks = new ArrayList<>();
-
-        for (Task task : taskLists) {
-            if (task.getDescription().toLowerCase().contains(keyword.toLowerCase())) {
-                matchingTasks.add(task);
+        String lowerCaseKeyword = keyword.toLowerCase();
+        lock.readLock().lock();
+        try {
+            int[] ids = wordIndex.search(keyword);
+            if (ids == null) {
+                for (Task task : tasks.asList()) {
+                    if (task.getDescription().toLowerCase().contains(lowerCaseKeyword)) {
+                        matchingTasks.add(task);
+                    }
+                }
+                return matchingTasks;
             }
-        }
 
-        if (matchingTasks.isEmpty()) {
-            ui.displayErrorMessage("No matching tasks found. Try a different keyword. ❓");
-        } else {
-            ui.printMessage("Here are the matching tasks in your list: \uD83D\uDD0D");
-            for (int i = 0; i < matchingTasks.size(); i++) {
-                Task task = matchingTasks.get(i);
-                ui.printMessage((i + 1) + "." + task);
+            // ids grow in list order, so the sorted posting ids already give the list order
+            matchingTasks.ensureCapacity(ids.length);
+            TaskTree current = tasks;
+            for (int id : ids) {
+                Task task = current.find(id);
+                if (task.getDescription().toLowerCase().contains(lowerCaseKeyword)) {
+                    matchingTasks.add(task);
+                }
             }
+            return matchingTasks;
+        } finally {
+            lock.readLock().unlock();
         }
     }
 }
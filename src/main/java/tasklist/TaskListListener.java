@@ -0,0 +1,19 @@
+package tasklist;
+
+/**
+ * This TaskListListener.java is told about every change made to a {@link TaskList}.
+ * It is called while the task list still holds its write lock, so changes arrive one at a time
+ * and in the order they were made, e.g. to journal them. It should be quick and must not change the task list.
+ */
+
+public interface TaskListListener {
+    void taskAdded(Task task);
+
+    // the index is where the task was before it was removed
+    void taskRemoved(int index, Task task);
+
+    void taskStatusChanged(int index, Task task);
+
+    // a removed task is back at the given index with its old id, e.g. after an undo, so it may not be the last task
+    void taskRestored(int index, Task task);
+}
@@ -0,0 +1,34 @@
+package tasklist;
+
+import java.util.List;
+
+/**
+ * This TaskPage.java holds one window of a filtered listing: the tasks in it, where each of them sits
+ * in the whole list (so they can be numbered the way mark and delete expect), and how many tasks
+ * matched the filter in total.
+ */
+
+public class TaskPage {
+    private final List<Task> tasks;
+    private final int[] positions;
+    private final int matchCount;
+
+    public TaskPage(List<Task> tasks, int[] positions, int matchCount) {
+        this.tasks = tasks;
+        this.positions = positions;
+        this.matchCount = matchCount;
+    }
+
+    public List<Task> getTasks() {
+        return tasks;
+    }
+
+    // the 0-based position in the whole list of the i-th task of this page
+    public int getPosition(int i) {
+        return positions[i];
+    }
+
+    public int getMatchCount() {
+        return matchCount;
+    }
+}
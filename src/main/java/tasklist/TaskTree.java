@@ -0,0 +1,261 @@
+package tasklist;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * This TaskTree.java is an immutable order-statistic tree of tasks: an AVL tree ordered by task id where every node
+ * also knows the size of its subtree. Since ids are handed out in list order, the n-th task in id order is the n-th
+ * task of the list, so finding a task by position or by id, adding and removing all take O(log n).
+ * Every change returns a new tree that shares all untouched nodes with the old one, so a tree that has been
+ * handed to a reader never changes underneath it.
+ */
+
+public final class TaskTree {
+    public static final TaskTree EMPTY = new TaskTree(null);
+
+    private final Node root;
+
+    private static final class Node {
+        final Task task;
+        final Node left;
+        final Node right;
+        final int size;
+        final int height;
+
+        Node(Task task, Node left, Node right) {
+            this.task = task;
+            this.left = left;
+            this.right = right;
+            this.size = 1 + size(left) + size(right);
+            this.height = 1 + Math.max(height(left), height(right));
+        }
+    }
+
+    private TaskTree(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Builds a balanced tree in O(n) from tasks that are already in ascending id order.
+     */
+    public static TaskTree of(List<Task> tasksInIdOrder) {
+        Task[] tasks = tasksInIdOrder.toArray(new Task[0]);
+        return new TaskTree(build(tasks, 0, tasks.length));
+    }
+
+    private static Node build(Task[] tasks, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        return new Node(tasks[middle], build(tasks, from, middle), build(tasks, middle + 1, to));
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    // the task at the given position (0-based) in id order
+    public Task get(int position) {
+        if (position < 0 || position >= size()) {
+            throw new IndexOutOfBoundsException("Index " + position + " out of bounds for length " + size());
+        }
+        Node node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (position < leftSize) {
+                node = node.left;
+            } else if (position > leftSize) {
+                position -= leftSize + 1;
+                node = node.right;
+            } else {
+                return node.task;
+            }
+        }
+    }
+
+    // the task with the given id, or null if there is none
+    public Task find(int id) {
+        Node node = root;
+        while (node != null) {
+            int nodeId = node.task.getId();
+            if (id < nodeId) {
+                node = node.left;
+            } else if (id > nodeId) {
+                node = node.right;
+            } else {
+                return node.task;
+            }
+        }
+        return null;
+    }
+
+    // the position of the task with the given id, or -1 if there is none
+    public int positionOf(int id) {
+        Node node = root;
+        int position = 0;
+        while (node != null) {
+            int nodeId = node.task.getId();
+            if (id < nodeId) {
+                node = node.left;
+            } else if (id > nodeId) {
+                position += size(node.left) + 1;
+                node = node.right;
+            } else {
+                return position + size(node.left);
+            }
+        }
+        return -1;
+    }
+
+    // a tree that also holds the task, replacing any task with the same id
+    public TaskTree insert(Task task) {
+        return new TaskTree(insert(root, task));
+    }
+
+    // a tree without the task with the given id
+    public TaskTree remove(int id) {
+        return new TaskTree(remove(root, id));
+    }
+
+    /**
+     * A read-only list view of this tree. get is O(log n) and iterating is O(n),
+     * and since the tree never changes, neither does the view.
+     */
+    public List<Task> asList() {
+        return new TaskListView(this);
+    }
+
+    private static Node insert(Node node, Task task) {
+        if (node == null) {
+            return new Node(task, null, null);
+        }
+        int id = task.getId();
+        int nodeId = node.task.getId();
+        if (id < nodeId) {
+            return balance(node.task, insert(node.left, task), node.right);
+        } else if (id > nodeId) {
+            return balance(node.task, node.left, insert(node.right, task));
+        }
+        return new Node(task, node.left, node.right);
+    }
+
+    private static Node remove(Node node, int id) {
+        if (node == null) {
+            return null;
+        }
+        int nodeId = node.task.getId();
+        if (id < nodeId) {
+            return balance(node.task, remove(node.left, id), node.right);
+        } else if (id > nodeId) {
+            return balance(node.task, node.left, remove(node.right, id));
+        }
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        // replace the node with its successor
+        Node successor = node.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        return balance(successor.task, node.left, removeMin(node.right));
+    }
+
+    private static Node removeMin(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        return balance(node.task, removeMin(node.left), node.right);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    // builds the node for task with the given children, rotating when one side is two levels taller
+    private static Node balance(Task task, Node left, Node right) {
+        int difference = height(left) - height(right);
+        if (difference > 1) {
+            if (height(left.left) < height(left.right)) {
+                left = rotateLeft(left.task, left.left, left.right);
+            }
+            return rotateRight(task, left, right);
+        }
+        if (difference < -1) {
+            if (height(right.right) < height(right.left)) {
+                right = rotateRight(right.task, right.left, right.right);
+            }
+            return rotateLeft(task, left, right);
+        }
+        return new Node(task, left, right);
+    }
+
+    private static Node rotateRight(Task task, Node left, Node right) {
+        return new Node(left.task, left.left, new Node(task, left.right, right));
+    }
+
+    private static Node rotateLeft(Task task, Node left, Node right) {
+        return new Node(right.task, new Node(task, left, right.left), right.right);
+    }
+
+    private static final class TaskListView extends AbstractList<Task> {
+        private final TaskTree tree;
+
+        TaskListView(TaskTree tree) {
+            this.tree = tree;
+        }
+
+        @Override
+        public Task get(int index) {
+            return tree.get(index);
+        }
+
+        @Override
+        public int size() {
+            return tree.size();
+        }
+
+        // walks the tree in order with a stack instead of looking up every position
+        @Override
+        public Iterator<Task> iterator() {
+            return new Iterator<>() {
+                private final ArrayDeque<Node> path = new ArrayDeque<>();
+                private Node next = tree.root;
+
+                @Override
+                public boolean hasNext() {
+                    return next != null || !path.isEmpty();
+                }
+
+                @Override
+                public Task next() {
+                    while (next != null) {
+                        path.push(next);
+                        next = next.left;
+                    }
+                    if (path.isEmpty()) {
+                        throw new NoSuchElementException();
+                    }
+                    Node node = path.pop();
+                    next = node.right;
+                    return node.task;
+                }
+            };
+        }
+    }
+}
@@ -5,6 +5,10 @@ public class Todo extends Task {
         super(todoDescription);
     }
 
+    public Todo(String todoDescription, int id, boolean isDone) {
+        super(todoDescription, id, isDone);
+    }
+
     @Override
     public String getType() {
         return "T";  // Type for Todo task
@@ -14,10 +18,4 @@ public class Todo extends Task {
     public String getDetails() {
         return "";  // No extra details for a basic Todo task
     }
-
-    @Override
-    public String getTaskStorageString() {
-        String doneMark = isDone() ? "X" : " ";
-        return String.format("[T][%s] %s", doneMark, description);
-    }
 }
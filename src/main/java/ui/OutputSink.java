@@ -0,0 +1,12 @@
+package ui;
+
+/**
+ * This OutputSink.java is where the Ui sends its text once per command.
+ * The Ui collects everything a command prints in one buffer and hands it over in a single write,
+ * so a sink can be the console, a socket, or nothing at all.
+ */
+
+public interface OutputSink {
+    // writes one chunk of output and makes sure it is visible to the reader
+    void write(CharSequence text);
+}
@@ -0,0 +1,22 @@
+package ui;
+
+import java.io.PrintStream;
+
+/**
+ * This PrintStreamSink.java sends the Ui output to a PrintStream such as System.out,
+ * with one write and one flush per chunk.
+ */
+
+public class PrintStreamSink implements OutputSink {
+    private final PrintStream out;
+
+    public PrintStreamSink(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void write(CharSequence text) {
+        out.append(text);
+        out.flush();
+    }
+}
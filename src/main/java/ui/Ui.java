@@ -1,23 +1,160 @@
 package ui;
 
+import metrics.Metrics;
+
 import java.util.*;
 
 /**
  * This Ui.java manages the user interface displayed.
  * This will include print statements and more.
+ * Messages are collected in one reusable buffer and written to the {@link OutputSink} in a single write,
+ * either after every message or, with deferred flushing, once per command when {@link #flush()} is called.
  */
 
 public class Ui {
+    private static final String SEPARATOR = "____________________________________________________________________________________________________________________________";
+    // buffers that grew past this for a huge listing are dropped instead of being kept around
+    private static final int MAX_RETAINED_BUFFER = 1024 * 1024;
+
+    private final OutputSink sink;
+    private StringBuilder buffer = new StringBuilder(1024);
+    private boolean isDeferredFlush;
+    // quiet mode leaves out separators and emoji, which keeps the output cheap and easy to parse
+    private boolean isQuietMode;
+    // in batch mode nothing is printed and error messages are collected for the end-of-batch report
+    private boolean isBatchMode;
+    private final List<String> batchErrors = new ArrayList<>();
+    // every error shown so far, so callers can tell whether a command ended in one
+    private int errorCount;
+
+    public Ui() {
+        this(new PrintStreamSink(System.out));
+    }
+
+    public Ui(OutputSink sink) {
+        this.sink = sink;
+    }
+
+    public void setBatchMode(boolean isBatchMode) {
+        this.isBatchMode = isBatchMode;
+    }
+
+    // when deferred, output is only written on flush(), which the caller does once per command
+    public void setDeferredFlush(boolean isDeferredFlush) {
+        this.isDeferredFlush = isDeferredFlush;
+    }
+
+    public void setQuietMode(boolean isQuietMode) {
+        this.isQuietMode = isQuietMode;
+    }
+
+    // writes everything buffered so far to the sink in one go
+    public void flush() {
+        if (buffer.length() == 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        sink.write(buffer);
+        Metrics.OUTPUTS.recordSince(start);
+        if (buffer.capacity() > MAX_RETAINED_BUFFER) {
+            buffer = new StringBuilder(1024);
+        } else {
+            buffer.setLength(0);
+        }
+    }
+
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    // returns the errors collected since the last call and forgets them
+    public List<String> takeBatchErrors() {
+        List<String> errors = new ArrayList<>(batchErrors);
+        batchErrors.clear();
+        return errors;
+    }
 
     public void printMessage(String... messages) {
+        if (isBatchMode) {
+            return;
+        }
         for (String message : messages) {
-            System.out.println(message);
+            if (isQuietMode) {
+                appendWithoutEmoji(message);
+            } else {
+                buffer.append(message);
+            }
+            buffer.append('\n');
         }
         printSeparator();
     }
 
+    /**
+     * Adds one line of a message that is written line by line, e.g. a long listing, so the lines go straight
+     * into the output buffer instead of being joined into one String first. Finish the message with endMessage().
+     */
+    public void printLine(CharSequence line) {
+        if (isBatchMode) {
+            return;
+        }
+        if (isQuietMode) {
+            appendWithoutEmoji(line);
+        } else {
+            buffer.append(line);
+        }
+        buffer.append('\n');
+    }
+
+    // ends a message written with printLine
+    public void endMessage() {
+        printSeparator();
+    }
+
     private void printSeparator() {
-        System.out.println("____________________________________________________________________________________________________________________________");
+        if (isBatchMode) {
+            return;
+        }
+        if (!isQuietMode) {
+            buffer.append(SEPARATOR).append('\n');
+        }
+        if (!isDeferredFlush) {
+            flush();
+        }
+    }
+
+    // copies the message without emoji and the spaces they leave at the end of a line
+    private void appendWithoutEmoji(CharSequence message) {
+        int lineStart = buffer.length();
+        for (int i = 0; i < message.length(); ) {
+            int codePoint = Character.codePointAt(message, i);
+            i += Character.charCount(codePoint);
+            if (codePoint == '\n') {
+                trimTrailingSpaces(lineStart);
+                buffer.append('\n');
+                lineStart = buffer.length();
+            } else if (!isEmoji(codePoint)) {
+                buffer.appendCodePoint(codePoint);
+            }
+        }
+        trimTrailingSpaces(lineStart);
+    }
+
+    private void trimTrailingSpaces(int lineStart) {
+        int end = buffer.length();
+        while (end > lineStart && buffer.charAt(end - 1) == ' ') {
+            end--;
+        }
+        buffer.setLength(end);
+    }
+
+    // emoji planes, the symbol and dingbat blocks Sunny uses, and the joiners that glue emoji together
+    private static boolean isEmoji(int codePoint) {
+        return codePoint >= 0x1F000
+                || (codePoint >= 0x2300 && codePoint <= 0x23FF)
+                || (codePoint >= 0x2600 && codePoint <= 0x27BF)
+                || (codePoint >= 0x2B00 && codePoint <= 0x2BFF)
+                || codePoint == 0xFE0F
+                || codePoint == 0x200D;
     }
 
     private static final String[] GREETINGS = {
@@ -41,12 +178,21 @@ public class Ui {
     public void displayAvailableCommands() {
         String availableCommands = "Available Commands:\n" +
                 "[list]: list all the tasks\n" +
+                "[list --page <n> --size <k> --type <T|D|E> --done|--pending]: list a page of matching tasks, any option can be left out\n" +
                 "[todo <description>]: add a todo task\n" +
                 "[deadline <description> /by <date>]: add a deadline task\n" +
                 "[event <description> /from <time> /to <time>]: add an event task\n" +
-                "[mark <taskNumber>]: mark task number as done\n" +
-                "[unmark <taskNumber>]: mark task number as not done\n" +
-                "[delete <taskNumber>]: delete a task\n" +
+                "[mark <taskNumber or #id>]: mark task number as done\n" +
+                "[unmark <taskNumber or #id>]: mark task number as not done\n" +
+                "[delete <taskNumber or #id>]: delete a task (ids never change, numbers do after a delete)\n" +
+                "[undo]: take back the last add, delete, mark or unmark\n" +
+                "[redo]: make the last undone change again\n" +
+                "[due before <date>]: list deadlines due before a date\n" +
+                "[due between <date> <date>]: list deadlines due between two dates\n" +
+                "[overdue]: list deadlines that are past due and not done\n" +
+                "[events during <date> <date>]: list events overlapping two dates\n" +
+                "[conflicts <taskNumber or #id>]: list events overlapping an event\n" +
+                "[stats]: show how many commands Sunny ran and how long they took\n" +
                 "[bye/exit/end/quit]: end the session\n" +
                 "[help]: display this help message\n" +
                 "[find <keyword>]: find keyword related to task ";
@@ -54,6 +200,11 @@ public class Ui {
     }
 
     public void displayErrorMessage(String errorMessage) {
+        errorCount++;
+        if (isBatchMode) {
+            batchErrors.add(errorMessage);
+            return;
+        }
         printMessage("Sunny detects error: " + errorMessage);
     }
 
@@ -61,10 +212,6 @@ public class Ui {
         printMessage("Yay! Sunny successfully " + successMessage);
     }
 
-    public void promptForInput(String prompt) {
-        System.out.print(prompt);
-    }
-
     public String displayTaskCount(int count) {
         return "Now you have " + count + (count == 1 ? " task" : " tasks") + " in the list.";
     }